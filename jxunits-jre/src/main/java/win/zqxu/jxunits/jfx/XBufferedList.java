@@ -0,0 +1,216 @@
+package win.zqxu.jxunits.jfx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+/**
+ * read only observable list of rows identified by key, the rows put or removed from any
+ * thread were buffered and applied in JavaFX application thread in batch, one change per
+ * batch, usually as source of {@link XSummaryList} for frequently updated data, for
+ * example:
+ * <p>
+ * XBufferedList&lt;String, Quote&gt; quotes = new XBufferedList&lt;&gt;(Quote::getSymbol);
+ * <br>
+ * tableView.setItems(new XSummaryList&lt;&gt;(quotes)); <br>
+ * quotes.put(quote); // from feed thread
+ * </p>
+ * 
+ * <p>
+ * multiple puts and removes of the same key between two batches were coalesced, only the
+ * last one applied. a row put with existing key replaces the row at its index, or appended
+ * if the key not exists
+ * </p>
+ * 
+ * @author zqxu
+ */
+public class XBufferedList<K, E> extends ObservableListBase<E> {
+  // removed mark of pending changes
+  private static final Object REMOVED = new Object();
+  private final Function<? super E, ? extends K> keyMapper;
+  private final List<E> rows = new ArrayList<>();
+  private final Map<K, Integer> indexes = new HashMap<>();
+  // pending changes by key, the row or REMOVED, guarded by the lock
+  private final Object lock = new Object();
+  private Map<K, Object> pending = new LinkedHashMap<>();
+  private boolean scheduled;
+  private long lastApplied;
+  private volatile long minInterval;
+
+  /**
+   * Constructor
+   * 
+   * @param keyMapper
+   *          function to get key of the row
+   */
+  public XBufferedList(Function<? super E, ? extends K> keyMapper) {
+    this.keyMapper = Objects.requireNonNull(keyMapper);
+  }
+
+  @Override
+  public E get(int index) {
+    return rows.get(index);
+  }
+
+  @Override
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * Get minimum interval in milliseconds between two batches
+   * 
+   * @return minimum interval in milliseconds
+   */
+  public long getMinInterval() {
+    return minInterval;
+  }
+
+  /**
+   * Set minimum interval in milliseconds between two batches, default is 0, that is apply
+   * pending changes as soon as the application thread available, at most once per pulse
+   * 
+   * @param minInterval
+   *          minimum interval in milliseconds
+   */
+  public void setMinInterval(long minInterval) {
+    this.minInterval = minInterval;
+  }
+
+  /**
+   * Put row, can be called from any thread, the row replaces the row with same key or
+   * appended in next batch
+   * 
+   * @param row
+   *          the row
+   */
+  public void put(E row) {
+    offer(keyMapper.apply(row), row);
+  }
+
+  /**
+   * Put rows, can be called from any thread
+   * 
+   * @param rows
+   *          the rows
+   * @see #put(Object)
+   */
+  public void putAll(Iterable<? extends E> rows) {
+    synchronized (lock) {
+      for (E row : rows)
+        pending.put(keyMapper.apply(row), row);
+      schedule();
+    }
+  }
+
+  /**
+   * Remove row with the key, can be called from any thread, the row removed in next batch
+   * 
+   * @param key
+   *          key of the row
+   */
+  public void removeKey(K key) {
+    offer(key, REMOVED);
+  }
+
+  private void offer(K key, Object change) {
+    synchronized (lock) {
+      pending.put(key, change);
+      schedule();
+    }
+  }
+
+  // schedule one batch for all pending changes, holding the lock
+  private void schedule() {
+    if (scheduled) return;
+    scheduled = true;
+    long delay = lastApplied + minInterval - System.currentTimeMillis();
+    if (delay <= 0)
+      Platform.runLater(this::applyPending);
+    else
+      getScheduler().schedule(() -> Platform.runLater(this::applyPending), delay,
+          TimeUnit.MILLISECONDS);
+  }
+
+  private static ScheduledExecutorService scheduler;
+
+  private static synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "XBufferedList-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return scheduler;
+  }
+
+  /**
+   * apply pending changes in one change, removed rows compacted in one pass, then the put
+   * rows replaced or appended
+   */
+  @SuppressWarnings("unchecked")
+  private void applyPending() {
+    Map<K, Object> changes;
+    synchronized (lock) {
+      changes = pending;
+      pending = new LinkedHashMap<>();
+      scheduled = false;
+      lastApplied = System.currentTimeMillis();
+    }
+    beginChange();
+    try {
+      boolean[] removing = new boolean[rows.size()];
+      boolean removed = false;
+      for (Map.Entry<K, Object> entry : changes.entrySet()) {
+        if (entry.getValue() != REMOVED) continue;
+        Integer index = indexes.remove(entry.getKey());
+        if (index == null) continue;
+        removing[index] = true;
+        removed = true;
+      }
+      if (removed) compactRows(removing);
+      for (Map.Entry<K, Object> entry : changes.entrySet()) {
+        if (entry.getValue() == REMOVED) continue;
+        E row = (E) entry.getValue();
+        Integer index = indexes.get(entry.getKey());
+        if (index != null) {
+          nextSet(index, rows.set(index, row));
+        } else {
+          indexes.put(entry.getKey(), rows.size());
+          rows.add(row);
+          nextAdd(rows.size() - 1, rows.size());
+        }
+      }
+    } finally {
+      endChange();
+    }
+  }
+
+  private void compactRows(boolean[] removing) {
+    int size = 0;
+    for (int i = 0; i < removing.length; i++) {
+      E row = rows.get(i);
+      if (removing[i]) {
+        nextRemove(size, row);
+        continue;
+      }
+      if (size != i) {
+        rows.set(size, row);
+        indexes.put(keyMapper.apply(row), size);
+      }
+      size++;
+    }
+    rows.subList(size, rows.size()).clear();
+  }
+}
@@ -4,12 +4,15 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -29,8 +32,9 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.DialogPane;
+import javafx.scene.control.Labeled;
 import javafx.scene.control.ScrollPane;
-import javafx.scene.control.Skin;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
@@ -44,6 +48,8 @@ import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.DataFormat;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
@@ -51,6 +57,7 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.stage.WindowEvent;
+import javafx.util.Callback;
 import win.zqxu.jxunits.jre.XObjectUtils;
 import win.zqxu.jxunits.jre.XResource;
 
@@ -716,9 +723,33 @@ public class XJfxUtils {
     return new XObservableMapList<>(map);
   }
 
+  private static volatile int fitSampleRows = 1000;
+
+  /**
+   * Get maximum rows sampled to estimate column width, default is 1000
+   * 
+   * @return maximum sample rows
+   */
+  public static int getFitSampleRows() {
+    return fitSampleRows;
+  }
+
+  /**
+   * Set maximum rows sampled to estimate column width, the rows were sampled the middle
+   * one of each equal part of the items
+   * 
+   * @param fitSampleRows
+   *          maximum sample rows
+   */
+  public static void setFitSampleRows(int fitSampleRows) {
+    if (fitSampleRows <= 0) throw new IllegalArgumentException("sample rows <= 0");
+    XJfxUtils.fitSampleRows = fitSampleRows;
+  }
+
   /**
-   * resize all visible leaf columns width to fit its content, search up to 20,000 rows
-   * for each column. no any exception throws even if resize failed
+   * resize all visible leaf columns width to fit its content, the width estimated from
+   * header text and text of sample rows, see {@link #setFitSampleRows(int)}. no any
+   * exception throws even if resize failed
    * 
    * @param table
    *          the table view contains columns to be resized
@@ -728,9 +759,9 @@ public class XJfxUtils {
   }
 
   /**
-   * resize all visible leaf columns width to fit its content, search up to 20,000 rows
-   * for each column, grow or shrink the specified column width to fit table if possible.
-   * no any exception throws even if resize failed
+   * resize all visible leaf columns width to fit its content, the width estimated from
+   * header text and text of sample rows, grow or shrink the specified column width to fit
+   * table if possible. no any exception throws even if resize failed
    * 
    * @param table
    *          the table view contains columns to be resized
@@ -740,11 +771,8 @@ public class XJfxUtils {
    */
   public static void optimizeColumnsWidth(TableView<?> table, TableColumn<?, ?> fitTable) {
     try {
-      Skin<?> skin = table.getSkin();
-      Method resize = getResizeColumnMethod(skin);
-      if (resize == null) return;
-      for (TableColumn<?, ?> column : table.getVisibleLeafColumns())
-        resize.invoke(skin, column, 20000);
+      for (ColumnSample sample : sampleColumns(table, table.getVisibleLeafColumns()))
+        sample.apply(sample.measure());
       if (fitTable != null) resizeColumnToFitTable(fitTable);
     } catch (Throwable ex) {
       // completely ignored any exceptions
@@ -752,8 +780,36 @@ public class XJfxUtils {
   }
 
   /**
-   * resize column to fit its content, search up to 20,000 rows, no any exception throws
-   * even resize failed
+   * same as {@link #optimizeColumnsWidth(TableView, TableColumn)}, but the text of sample
+   * rows measured out of JavaFX application thread and the columns resized later. must be
+   * called in JavaFX application thread
+   * 
+   * @param table
+   *          the table view contains columns to be resized
+   * @param fitTable
+   *          the specified column to fit table free space, or null
+   */
+  public static void optimizeColumnsWidthLater(TableView<?> table, TableColumn<?, ?> fitTable) {
+    List<ColumnSample> samples;
+    try {
+      samples = sampleColumns(table, table.getVisibleLeafColumns());
+    } catch (Throwable ex) {
+      return; // completely ignored any exceptions
+    }
+    double[] widths = new double[samples.size()];
+    CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < widths.length; i++)
+        widths[i] = samples.get(i).measure();
+    }).thenRunAsync(() -> {
+      for (int i = 0; i < widths.length; i++)
+        samples.get(i).apply(widths[i]);
+      if (fitTable != null) resizeColumnToFitTable(fitTable);
+    }, Platform::runLater);
+  }
+
+  /**
+   * resize column to fit its content, the width estimated from header text and text of
+   * sample rows, no any exception throws even resize failed
    * 
    * @param column
    *          the table column
@@ -762,22 +818,121 @@ public class XJfxUtils {
     try {
       TableView<?> table = column.getTableView();
       if (table == null) return;
-      Skin<?> skin = table.getSkin();
-      Method resize = getResizeColumnMethod(skin);
-      if (resize != null)
-        resize.invoke(skin, column, 20000);
+      for (ColumnSample sample : sampleColumns(table, Collections.singletonList(column)))
+        sample.apply(sample.measure());
     } catch (Exception ex) {
       // completely ignored any exceptions
     }
   }
 
-  private static Method getResizeColumnMethod(Skin<?> skin) {
-    if (skin == null) return null;
-    Method resize = XObjectUtils.getMethod(skin,
-        "resizeColumnToFitContent",
-        TableColumn.class, int.class);
-    if (resize != null) resize.setAccessible(true);
-    return resize;
+  // read header and text of sample rows of resizable columns, in JavaFX application thread
+  private static List<ColumnSample> sampleColumns(TableView<?> table,
+      List<? extends TableColumn<?, ?>> columns) {
+    int[] rows = sampleRows(table.getItems() == null ? 0 : table.getItems().size());
+    Node cell = table.lookup(".table-cell");
+    Node label = table.lookup(".column-header .label");
+    Font cellFont = cell instanceof Labeled ? ((Labeled) cell).getFont() : Font.getDefault();
+    Font headerFont = label instanceof Labeled ? ((Labeled) label).getFont() : cellFont;
+    double cellPadding = horizontalInsets(cell) + 10;
+    double headerPadding = horizontalInsets(label) + 10;
+    List<ColumnSample> samples = new ArrayList<>();
+    for (TableColumn<?, ?> column : columns) {
+      if (!column.isResizable()) continue;
+      samples.add(new ColumnSample(column, column.getText(), headerFont, headerPadding,
+          cellTexts(table, column, rows), cellFont, cellPadding));
+    }
+    return samples;
+  }
+
+  // middle row of each equal part of the rows, all rows if not more than sample rows
+  private static int[] sampleRows(int count) {
+    int sampleRows = fitSampleRows;
+    if (count <= sampleRows) {
+      int[] rows = new int[count];
+      for (int i = 0; i < count; i++)
+        rows[i] = i;
+      return rows;
+    }
+    int[] rows = new int[sampleRows];
+    for (int i = 0; i < sampleRows; i++) {
+      int from = (int) ((long) count * i / sampleRows);
+      int to = (int) ((long) count * (i + 1) / sampleRows);
+      rows[i] = (from + to) >>> 1;
+    }
+    return rows;
+  }
+
+  /**
+   * text of sample rows, the cell text of summary column, otherwise the text of a cell
+   * created by cell factory of the column, same as the table shows. graphic of the cell not
+   * measured
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static String[] cellTexts(TableView table, TableColumn column, int[] rows) {
+    String[] texts = new String[rows.length];
+    if (column instanceof XSummaryTableColumn) {
+      for (int i = 0; i < rows.length; i++)
+        texts[i] = ((XSummaryTableColumn) column)
+            .getCellText((XSummaryItem) table.getItems().get(rows[i]));
+      return texts;
+    }
+    Callback<TableColumn, TableCell> factory = column.getCellFactory();
+    TableCell cell = factory == null ? null : factory.call(column);
+    if (cell == null) {
+      for (int i = 0; i < rows.length; i++) {
+        Object value = column.getCellData(rows[i]);
+        texts[i] = value == null || value instanceof Node ? "" : value.toString();
+      }
+      return texts;
+    }
+    TableRow row = new TableRow();
+    row.updateTableView(table);
+    cell.updateTableView(table);
+    cell.updateTableColumn(column);
+    cell.updateTableRow(row);
+    for (int i = 0; i < rows.length; i++) {
+      row.updateIndex(rows[i]);
+      cell.updateIndex(rows[i]);
+      texts[i] = cell.getText() == null ? "" : cell.getText();
+    }
+    return texts;
+  }
+
+  private static double horizontalInsets(Node node) {
+    if (!(node instanceof Region)) return 0;
+    Insets insets = ((Region) node).getInsets();
+    return insets.getLeft() + insets.getRight();
+  }
+
+  // text width cached by font and text, the measure text node is one per thread
+  private static final Map<Font, Map<String, Double>> TEXT_WIDTHS = new HashMap<>();
+  private static final ThreadLocal<Text> MEASURE_TEXT = ThreadLocal.withInitial(Text::new);
+
+  private static double measureText(Font font, String text) {
+    if (text == null || text.isEmpty()) return 0;
+    synchronized (TEXT_WIDTHS) {
+      Double width = TEXT_WIDTHS.computeIfAbsent(font, f -> newTextWidths()).get(text);
+      if (width != null) return width;
+    }
+    Text measure = MEASURE_TEXT.get();
+    measure.setFont(font);
+    measure.setText(text);
+    double width = measure.getLayoutBounds().getWidth();
+    synchronized (TEXT_WIDTHS) {
+      TEXT_WIDTHS.get(font).put(text, width);
+    }
+    return width;
+  }
+
+  private static Map<String, Double> newTextWidths() {
+    return new LinkedHashMap<String, Double>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+        return size() > 10000;
+      }
+    };
   }
 
   /**
@@ -978,6 +1133,41 @@ public class XJfxUtils {
     return false;
   }
 
+  private static class ColumnSample {
+    private final TableColumn<?, ?> column;
+    private final String header;
+    private final Font headerFont;
+    private final double headerPadding;
+    private final String[] texts;
+    private final Font cellFont;
+    private final double cellPadding;
+
+    public ColumnSample(TableColumn<?, ?> column, String header, Font headerFont,
+        double headerPadding, String[] texts, Font cellFont, double cellPadding) {
+      this.column = column;
+      this.header = header;
+      this.headerFont = headerFont;
+      this.headerPadding = headerPadding;
+      this.texts = texts;
+      this.cellFont = cellFont;
+      this.cellPadding = cellPadding;
+    }
+
+    // can be called in any thread
+    public double measure() {
+      double width = measureText(headerFont, header) + headerPadding;
+      for (String text : texts)
+        width = Math.max(width, measureText(cellFont, text) + cellPadding);
+      return width;
+    }
+
+    // in JavaFX application thread
+    public void apply(double width) {
+      width = Math.max(width, column.getMinWidth());
+      column.setPrefWidth(Math.min(width, column.getMaxWidth()));
+    }
+  }
+
   private static class ResultProxy<V> {
     private V result;
     private Exception exception;
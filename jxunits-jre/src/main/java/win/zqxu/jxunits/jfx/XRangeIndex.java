@@ -0,0 +1,127 @@
+package win.zqxu.jxunits.jfx;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * index of ranges to match values same as {@link XRangeItem#match(Comparable, List)}, for
+ * large range list like thousands of single values pasted into range editor
+ * <p>
+ * EQ values were held in a hash set (or a sorted set if the value type is not known as
+ * consistent with equals), LT, LE, GT, GE, BT, NB and NE ranges were merged into sorted
+ * disjoint intervals, CP and NP ranges were tested one by one. so matching a value costs
+ * O(1) or O(log r) except the wild-card ranges
+ * </p>
+ * 
+ * <p>
+ * the index is immutable, later changes of the ranges not affect the index
+ * </p>
+ * 
+ * @author zqxu
+ */
+public class XRangeIndex<T extends Comparable<? super T>> implements Predicate<T> {
+  // value types that compareTo consistent with equals
+  private static final Set<Class<?>> HASHABLE_TYPES = new HashSet<>(Arrays.asList(
+      String.class, Integer.class, Long.class, Short.class, Byte.class, Character.class,
+      Boolean.class, LocalDate.class, LocalDateTime.class, LocalTime.class));
+  private final boolean unlimited;
+  private final boolean emptyMatched;
+  private final Part<T> includes;
+  private final Part<T> excludes;
+
+  /**
+   * Constructor
+   * 
+   * @param ranges
+   *          the ranges
+   */
+  public XRangeIndex(List<XRangeItem<T>> ranges) {
+    unlimited = ranges.isEmpty();
+    emptyMatched = XRangeItem.match(null, ranges);
+    List<XRangeItem<T>> included = new ArrayList<>(), excluded = new ArrayList<>();
+    for (XRangeItem<T> range : ranges) {
+      if (XRangeItem.isEmpty(range)) continue;
+      if (range.getSign() == XRangeSign.E)
+        excluded.add(range);
+      else
+        included.add(range);
+    }
+    includes = new Part<>(included);
+    excludes = new Part<>(excluded);
+  }
+
+  /**
+   * Determine whether the value match the ranges, same as
+   * {@link XRangeItem#match(Comparable, List)}
+   * 
+   * @param value
+   *          the value
+   * @return true if the value match the ranges
+   */
+  public boolean match(T value) {
+    if (unlimited) return true;
+    if (XRangeItem.isEmpty(value)) return emptyMatched;
+    return !excludes.contains(value) && includes.contains(value);
+  }
+
+  @Override
+  public boolean test(T value) {
+    return match(value);
+  }
+
+  /**
+   * ranges of same sign, for none empty values
+   * 
+   * @author zqxu
+   */
+  private static class Part<T extends Comparable<? super T>> {
+    private final Set<T> values;
+    private final XRangeIntervals<T> intervals;
+    private final List<Predicate<T>> wildcards = new ArrayList<>();
+
+    public Part(List<XRangeItem<T>> ranges) {
+      List<T> points = new ArrayList<>();
+      List<XRangeIntervals.Interval<T>> list = new ArrayList<>();
+      for (XRangeItem<T> range : ranges) {
+        switch (range.getOption()) {
+        case EQ:
+          if (!XRangeItem.isEmpty(range.getLow())) points.add(range.getLow());
+          break;
+        case CP:
+        case NP:
+          wildcards.add(XRangeItem.compile(range));
+          break;
+        default:
+          list.addAll(XRangeIntervals.of(range));
+        }
+      }
+      values = createSet(points);
+      intervals = new XRangeIntervals<>(list);
+    }
+
+    private static <T> Set<T> createSet(Collection<T> points) {
+      if (points.isEmpty()) return Collections.emptySet();
+      for (T point : points) {
+        if (!HASHABLE_TYPES.contains(point.getClass())) return new TreeSet<>(points);
+      }
+      return new HashSet<>(points);
+    }
+
+    public boolean contains(T value) {
+      if (values.contains(value) || intervals.contains(value)) return true;
+      for (Predicate<T> wildcard : wildcards)
+        if (wildcard.test(value)) return true;
+      return false;
+    }
+  }
+}
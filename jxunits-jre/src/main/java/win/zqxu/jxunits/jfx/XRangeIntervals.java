@@ -0,0 +1,273 @@
+package win.zqxu.jxunits.jfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * immutable sorted disjoint intervals of none empty values, merged from overlapped or
+ * adjacent intervals, the null bound of interval is unbounded
+ * 
+ * @author zqxu
+ */
+class XRangeIntervals<T extends Comparable<? super T>> {
+  private final List<Interval<T>> intervals = new ArrayList<>();
+
+  public XRangeIntervals(List<Interval<T>> list) {
+    list = new ArrayList<>(list);
+    list.removeIf(Interval::isEmpty);
+    list.sort((i1, i2) -> {
+      if (i1.low == null || i2.low == null)
+        return i1.low == null ? (i2.low == null ? 0 : -1) : 1;
+      int compare = i1.low.compareTo(i2.low);
+      if (compare != 0) return compare;
+      return Boolean.compare(i2.lowInclusive, i1.lowInclusive);
+    });
+    Interval<T> last = null;
+    for (Interval<T> interval : list) {
+      if (last != null && joined(last, interval)) {
+        last = extend(last, interval);
+        intervals.set(intervals.size() - 1, last);
+      } else {
+        last = interval;
+        intervals.add(last);
+      }
+    }
+  }
+
+  /**
+   * Create intervals of none empty values matched by the range, the range must not be
+   * empty, CP or NP range
+   * 
+   * @param range
+   *          the range
+   * @return intervals of the range
+   */
+  public static <T extends Comparable<? super T>> List<Interval<T>> of(XRangeItem<T> range) {
+    T low = range.getLow(), high = range.getHigh();
+    List<Interval<T>> list = new ArrayList<>();
+    switch (range.getOption()) {
+    case EQ:
+      if (!XRangeItem.isEmpty(low)) add(list, low, true, low, true);
+      break;
+    case NE:
+      if (XRangeItem.isEmpty(low)) {
+        add(list, null, false, null, false);
+      } else {
+        add(list, null, false, low, false);
+        add(list, low, false, null, false);
+      }
+      break;
+    case LT:
+      if (low != null) add(list, null, false, low, false);
+      break;
+    case LE:
+      if (low != null) add(list, null, false, low, true);
+      break;
+    case GT:
+      add(list, low, false, null, false);
+      break;
+    case GE:
+      add(list, low, true, null, false);
+      break;
+    case BT:
+      if (high != null) add(list, low, true, high, true);
+      break;
+    case NB:
+      if (high == null) {
+        add(list, null, false, null, false);
+      } else {
+        if (low != null) add(list, null, false, low, false);
+        add(list, high, false, null, false);
+      }
+      break;
+    default:
+      throw new IllegalArgumentException("wild-card range " + range);
+    }
+    return list;
+  }
+
+  // empty string bound is before all none empty values
+  private static <T extends Comparable<? super T>> void add(List<Interval<T>> list, T low,
+      boolean lowInclusive, T high, boolean highInclusive) {
+    if (high != null && XRangeItem.isEmpty(high)) return;
+    if (low != null && XRangeItem.isEmpty(low)) low = null;
+    list.add(new Interval<>(low, lowInclusive, high, highInclusive));
+  }
+
+  // whether the next interval (not before the last) overlapped or adjacent to the last
+  private boolean joined(Interval<T> last, Interval<T> next) {
+    if (last.high == null || next.low == null) return true;
+    int compare = next.low.compareTo(last.high);
+    return compare < 0 || (compare == 0 && (last.highInclusive || next.lowInclusive));
+  }
+
+  private Interval<T> extend(Interval<T> last, Interval<T> next) {
+    if (last.high == null) return last;
+    int compare = next.high == null ? 1 : next.high.compareTo(last.high);
+    if (compare < 0 || (compare == 0 && last.highInclusive)) return last;
+    return new Interval<>(last.low, last.lowInclusive, next.high, next.highInclusive);
+  }
+
+  /**
+   * Get unmodifiable sorted disjoint intervals
+   * 
+   * @return the intervals
+   */
+  public List<Interval<T>> getIntervals() {
+    return Collections.unmodifiableList(intervals);
+  }
+
+  /**
+   * Determine whether no value in the intervals
+   * 
+   * @return true or false
+   */
+  public boolean isEmpty() {
+    return intervals.isEmpty();
+  }
+
+  /**
+   * Determine whether all none empty values in the intervals
+   * 
+   * @return true or false
+   */
+  public boolean isFull() {
+    return intervals.size() == 1 && intervals.get(0).low == null
+        && intervals.get(0).high == null;
+  }
+
+  /**
+   * Determine whether the none empty value in the intervals
+   * 
+   * @param value
+   *          the value
+   * @return true or false
+   */
+  public boolean contains(T value) {
+    // the last interval with low bound not after the value
+    int low = 0, high = intervals.size() - 1, found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (intervals.get(middle).fromBelow(value)) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found != -1 && intervals.get(found).toAbove(value);
+  }
+
+  /**
+   * Get union of this and the other intervals
+   * 
+   * @param other
+   *          the other intervals
+   * @return union of the intervals
+   */
+  public XRangeIntervals<T> union(XRangeIntervals<T> other) {
+    List<Interval<T>> list = new ArrayList<>(intervals);
+    list.addAll(other.intervals);
+    return new XRangeIntervals<>(list);
+  }
+
+  /**
+   * Get complement of this intervals in none empty values
+   * 
+   * @return complement of the intervals
+   */
+  public XRangeIntervals<T> complement() {
+    List<Interval<T>> list = new ArrayList<>();
+    T low = null;
+    boolean lowInclusive = false, unbounded = true;
+    for (Interval<T> interval : intervals) {
+      if (interval.low != null)
+        list.add(new Interval<>(low, lowInclusive, interval.low, !interval.lowInclusive));
+      if (interval.high == null) {
+        unbounded = false;
+        break;
+      }
+      low = interval.high;
+      lowInclusive = !interval.highInclusive;
+    }
+    if (unbounded) list.add(new Interval<>(low, lowInclusive, null, false));
+    return new XRangeIntervals<>(list);
+  }
+
+  /**
+   * Get the values in this intervals but not in the other intervals
+   * 
+   * @param other
+   *          the other intervals
+   * @return difference of the intervals
+   */
+  public XRangeIntervals<T> minus(XRangeIntervals<T> other) {
+    return complement().union(other).complement();
+  }
+
+  /**
+   * immutable interval of none empty values, null bound is unbounded
+   * 
+   * @author zqxu
+   */
+  public static class Interval<T extends Comparable<? super T>> {
+    private final T low;
+    private final boolean lowInclusive;
+    private final T high;
+    private final boolean highInclusive;
+
+    public Interval(T low, boolean lowInclusive, T high, boolean highInclusive) {
+      this.low = low;
+      this.lowInclusive = low != null && lowInclusive;
+      this.high = high;
+      this.highInclusive = high != null && highInclusive;
+    }
+
+    public T getLow() {
+      return low;
+    }
+
+    public boolean isLowInclusive() {
+      return lowInclusive;
+    }
+
+    public T getHigh() {
+      return high;
+    }
+
+    public boolean isHighInclusive() {
+      return highInclusive;
+    }
+
+    public boolean isEmpty() {
+      if (low == null || high == null) return false;
+      int compare = low.compareTo(high);
+      return compare > 0 || (compare == 0 && !(lowInclusive && highInclusive));
+    }
+
+    /**
+     * Determine whether the interval contains only one value
+     * 
+     * @return true or false
+     */
+    public boolean isPoint() {
+      return low != null && high != null && lowInclusive && highInclusive
+          && low.compareTo(high) == 0;
+    }
+
+    // whether the value not before low bound
+    public boolean fromBelow(T value) {
+      if (low == null) return true;
+      int compare = low.compareTo(value);
+      return compare < 0 || (compare == 0 && lowInclusive);
+    }
+
+    // whether the value not after high bound
+    public boolean toAbove(T value) {
+      if (high == null) return true;
+      int compare = value.compareTo(high);
+      return compare < 0 || (compare == 0 && highInclusive);
+    }
+  }
+}
@@ -1,14 +1,18 @@
 package win.zqxu.jxunits.jfx;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.image.Image;
 
 public class XRangeItem<T extends Comparable<? super T>> {
+  // ranges compiled to an index if more than this count
+  private static final int INDEX_THRESHOLD = 16;
   private ObjectProperty<XRangeSign> sign = new SimpleObjectProperty<>();
   private ObjectProperty<XRangeOption> option = new SimpleObjectProperty<>();
   private ObjectProperty<T> low = new SimpleObjectProperty<>();
@@ -180,27 +184,66 @@ public class XRangeItem<T extends Comparable<? super T>> {
     }
   }
 
-  private boolean equals(T value, T low) {
+  private static <T extends Comparable<? super T>> boolean equals(T value, T low) {
     return (isEmpty(value) && isEmpty(low))
         || (value != null && low != null && value.compareTo(low) == 0);
   }
 
-  private boolean lessThan(T value, T low) {
+  private static <T extends Comparable<? super T>> boolean lessThan(T value, T low) {
     return isEmpty(value) || (value != null && low != null && value.compareTo(low) < 0);
   }
 
-  private boolean lessThanOrEquals(T value, T low) {
+  private static <T extends Comparable<? super T>> boolean lessThanOrEquals(T value,
+      T low) {
     return isEmpty(value) || (value != null && low != null && value.compareTo(low) <= 0);
   }
 
   private boolean matchWildcards(T value, T lowValue) {
-    String text = Objects.toString(value, "");
-    String pattern = Objects.toString(lowValue, "")
-        .replace("?", ".").replace("*", ".*");
-    return text.toString().matches(pattern);
+    return matchWildcards(Objects.toString(value, ""), Objects.toString(lowValue, ""));
+  }
+
+  // * matches any characters and ? matches one character, other characters are literal
+  private static boolean matchWildcards(String text, String pattern) {
+    int t = 0, p = 0, star = -1, starText = 0;
+    while (t < text.length()) {
+      char ch = p < pattern.length() ? pattern.charAt(p) : 0;
+      if (p < pattern.length() && ch == '*') {
+        star = p++;
+        starText = t;
+      } else if (p < pattern.length() && (ch == '?' || ch == text.charAt(t))) {
+        p++;
+        t++;
+      } else if (star != -1) {
+        p = star + 1;
+        t = ++starText;
+      } else {
+        return false;
+      }
+    }
+    while (p < pattern.length() && pattern.charAt(p) == '*')
+      p++;
+    return p == pattern.length();
+  }
+
+  // the pattern without ? and with * only at start or end matched by string methods
+  private static Predicate<String> compileWildcards(String pattern) {
+    int first = pattern.indexOf('*'), last = pattern.lastIndexOf('*');
+    if (pattern.indexOf('?') == -1) {
+      if (first == -1) return text -> text.equals(pattern);
+      if (first == last) {
+        String prefix = pattern.substring(0, first), suffix = pattern.substring(first + 1);
+        int length = prefix.length() + suffix.length();
+        return text -> text.length() >= length && text.startsWith(prefix)
+            && text.endsWith(suffix);
+      }
+      String middle = pattern.substring(1, last);
+      if (first == 0 && last == pattern.length() - 1 && middle.indexOf('*') == -1)
+        return text -> text.contains(middle);
+    }
+    return text -> matchWildcards(text, pattern);
   }
 
-  private boolean between(T value, T low, T high) {
+  private static <T extends Comparable<? super T>> boolean between(T value, T low, T high) {
     return !lessThan(value, low) && lessThanOrEquals(value, high);
   }
 
@@ -305,7 +348,9 @@ public class XRangeItem<T extends Comparable<? super T>> {
    * @return true if the value contains wild-card
    */
   public static boolean containsWildcard(Object value) {
-    return value instanceof String && ((String) value).matches(".*(\\*|\\?).*");
+    if (!(value instanceof String)) return false;
+    String text = (String) value;
+    return text.indexOf('*') != -1 || text.indexOf('?') != -1;
   }
 
   /**
@@ -349,4 +394,69 @@ public class XRangeItem<T extends Comparable<? super T>> {
     }
     return match;
   }
+
+  /**
+   * Compile ranges to an immutable predicate, the predicate test value same as
+   * {@link #match(Comparable, List)}, but sign, option and values of the ranges resolved
+   * and wild-card patterns compiled once. an {@link XRangeIndex} returned for more than
+   * {@value #INDEX_THRESHOLD} ranges. later changes of the ranges not affect the predicate
+   * 
+   * @param <T>
+   *          the value type
+   * @param ranges
+   *          the ranges
+   * @return predicate to test value match the ranges
+   */
+  public static <T extends Comparable<? super T>> Predicate<T> compile(
+      List<XRangeItem<T>> ranges) {
+    if (ranges.isEmpty()) return value -> true;
+    if (ranges.size() > INDEX_THRESHOLD) return new XRangeIndex<>(ranges);
+    List<Predicate<T>> includes = new ArrayList<>(), excludes = new ArrayList<>();
+    for (XRangeItem<T> range : ranges) {
+      if (isEmpty(range)) continue;
+      if (range.getSign() == XRangeSign.E)
+        excludes.add(compile(range));
+      else
+        includes.add(compile(range));
+    }
+    if (includes.isEmpty()) return value -> false;
+    return value -> {
+      for (int i = 0; i < excludes.size(); i++)
+        if (excludes.get(i).test(value)) return false;
+      for (int i = 0; i < includes.size(); i++)
+        if (includes.get(i).test(value)) return true;
+      return false;
+    };
+  }
+
+  // compile the none empty range
+  static <T extends Comparable<? super T>> Predicate<T> compile(XRangeItem<T> range) {
+    T low = range.getLow(), high = range.getHigh();
+    switch (range.getOption()) {
+    case EQ:
+      return value -> equals(value, low);
+    case NE:
+      return value -> !equals(value, low);
+    case LT:
+      return value -> lessThan(value, low);
+    case LE:
+      return value -> lessThanOrEquals(value, low);
+    case GT:
+      return value -> !lessThanOrEquals(value, low);
+    case GE:
+      return value -> !lessThan(value, low);
+    case CP:
+      Predicate<String> pattern = compileWildcards(Objects.toString(low, ""));
+      return value -> pattern.test(Objects.toString(value, ""));
+    case NP:
+      Predicate<String> negative = compileWildcards(Objects.toString(low, ""));
+      return value -> !negative.test(Objects.toString(value, ""));
+    case BT:
+      return value -> between(value, low, high);
+    case NB:
+      return value -> !between(value, low, high);
+    default:
+      throw new RuntimeException(); // impossible
+    }
+  }
 }
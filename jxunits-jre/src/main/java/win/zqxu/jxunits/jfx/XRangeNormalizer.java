@@ -0,0 +1,261 @@
+package win.zqxu.jxunits.jfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import win.zqxu.jxunits.jfx.XRangeIntervals.Interval;
+
+/**
+ * normalize ranges into an equivalent minimal ranges, that is, match same values as
+ * {@link XRangeItem#match(Comparable, List)}. for example:
+ * <p>
+ * XRangeNormalizer&lt;Integer&gt; normalizer = new XRangeNormalizer&lt;&gt;(ranges); <br>
+ * if (!normalizer.isMatchAll()) filter(normalizer.getRanges());
+ * </p>
+ * 
+ * <p>
+ * the intervals of each sign were merged, duplicated and subsumed ranges removed, and the
+ * excluded values folded into including ranges if the result is shorter. if there are CP
+ * or NP ranges, the excluded values can not be folded, only ranges of each sign merged.
+ * the result is never longer than the ranges without empty and duplicated ranges
+ * </p>
+ * 
+ * @author zqxu
+ */
+public class XRangeNormalizer<T extends Comparable<? super T>> {
+  private final List<XRangeItem<T>> ranges;
+  private final boolean matchAll;
+  private final boolean matchNothing;
+
+  /**
+   * Constructor, normalize the ranges
+   * 
+   * @param ranges
+   *          the ranges
+   */
+  public XRangeNormalizer(List<XRangeItem<T>> ranges) {
+    boolean emptyMatched = XRangeItem.match(null, ranges);
+    List<Interval<T>> included = new ArrayList<>(), excluded = new ArrayList<>();
+    Set<XRangeItem<T>> includes = new LinkedHashSet<>(), excludes = new LinkedHashSet<>();
+    Set<XRangeItem<T>> wildcards = new LinkedHashSet<>(), distinct = new LinkedHashSet<>();
+    for (XRangeItem<T> range : ranges) {
+      if (XRangeItem.isEmpty(range)) continue;
+      distinct.add(copyRange(range));
+      boolean exclude = range.getSign() == XRangeSign.E;
+      XRangeOption option = range.getOption();
+      if (option == XRangeOption.CP || option == XRangeOption.NP) {
+        wildcards.add(copyRange(range));
+      } else {
+        (exclude ? excludes : includes).add(copyRange(range));
+        (exclude ? excluded : included).addAll(XRangeIntervals.of(range));
+      }
+    }
+    XRangeIntervals<T> including = new XRangeIntervals<>(included);
+    XRangeIntervals<T> excluding = new XRangeIntervals<>(excluded);
+    List<XRangeItem<T>> list = new ArrayList<>();
+    if (ranges.isEmpty()) {
+      matchAll = true;
+      matchNothing = false;
+    } else if (wildcards.isEmpty()) {
+      XRangeIntervals<T> result = including.minus(excluding);
+      matchAll = result.isFull() && emptyMatched;
+      matchNothing = result.isEmpty() && !emptyMatched;
+      if (!matchAll) list = simplify(including, result, emptyMatched);
+    } else {
+      matchAll = false;
+      matchNothing = including.isEmpty() && !emptyMatched && !hasIncluding(wildcards);
+      List<XRangeItem<T>> merged = createIncluding(including, false);
+      list.addAll(merged != null ? merged : includes);
+      merged = createExcluding(excluding);
+      list.addAll(merged != null ? merged : excludes);
+      list.addAll(wildcards);
+    }
+    if (!matchAll) list = matchEmpty(list, emptyMatched);
+    // the ranges without duplicated are not longer
+    if (!matchAll && !distinct.isEmpty() && distinct.size() <= list.size())
+      list = new ArrayList<>(distinct);
+    this.ranges = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Normalize the ranges
+   * 
+   * @param <T>
+   *          the value type
+   * @param ranges
+   *          the ranges
+   * @return the normalized ranges, empty list if all values matched
+   */
+  public static <T extends Comparable<? super T>> List<XRangeItem<T>> normalize(
+      List<XRangeItem<T>> ranges) {
+    return new XRangeNormalizer<>(ranges).getRanges();
+  }
+
+  /**
+   * Get unmodifiable normalized ranges, empty list if all values matched. the ranges were
+   * new created, not any of the original ranges
+   * 
+   * @return the normalized ranges
+   */
+  public List<XRangeItem<T>> getRanges() {
+    return ranges;
+  }
+
+  /**
+   * Determine whether all values (include empty values) matched by the ranges, so
+   * filtering can be skipped
+   * 
+   * @return true or false
+   */
+  public boolean isMatchAll() {
+    return matchAll;
+  }
+
+  /**
+   * Determine whether no value matched by the ranges. always false if the result is not
+   * sure because of CP or NP ranges
+   * 
+   * @return true or false
+   */
+  public boolean isMatchNothing() {
+    return matchNothing;
+  }
+
+  private boolean hasIncluding(Set<XRangeItem<T>> wildcards) {
+    for (XRangeItem<T> range : wildcards)
+      if (range.getSign() != XRangeSign.E) return true;
+    return false;
+  }
+
+  /**
+   * the shortest of including the result values, including values then excluding the
+   * values not in result, or excluding all values not in result, each with the range of
+   * empty value if required
+   */
+  private List<XRangeItem<T>> simplify(XRangeIntervals<T> including,
+      XRangeIntervals<T> result, boolean emptyMatched) {
+    List<XRangeItem<T>> shortest = matchEmpty(createIncluding(result, true), emptyMatched);
+    List<XRangeItem<T>> excluding = createExcluding(including.minus(result));
+    if (excluding != null) {
+      excluding.addAll(0, createIncluding(including, true));
+      excluding = matchEmpty(excluding, emptyMatched);
+      if (excluding.size() < shortest.size()) shortest = excluding;
+    }
+    excluding = createExcluding(result.complement());
+    if (excluding != null) {
+      excluding.add(0, createRange(XRangeSign.I, XRangeOption.NE, null, null));
+      excluding = matchEmpty(excluding, emptyMatched);
+      if (excluding.size() < shortest.size()) shortest = excluding;
+    }
+    return shortest;
+  }
+
+  // add EQ range of empty value if the ranges not match empty value as expected
+  private List<XRangeItem<T>> matchEmpty(List<XRangeItem<T>> list, boolean emptyMatched) {
+    // empty list matches all values
+    if (list.isEmpty() || XRangeItem.match(null, list) != emptyMatched)
+      list.add(createRange(emptyMatched ? XRangeSign.I : XRangeSign.E, XRangeOption.EQ,
+          null, null));
+    return list;
+  }
+
+  /**
+   * create including ranges for the intervals, the lower bound of open interval excluded
+   * by EQ range only if excludable, otherwise returns null for open interval. intervals
+   * separated by single value merged, NE range for all values except one, and the other
+   * separating values excluded only if excludable
+   */
+  private List<XRangeItem<T>> createIncluding(XRangeIntervals<T> intervals,
+      boolean excludable) {
+    List<XRangeItem<T>> list = new ArrayList<>();
+    Set<XRangeItem<T>> excludes = new LinkedHashSet<>();
+    List<Interval<T>> merged = new ArrayList<>();
+    List<T> points = new ArrayList<>();
+    for (Interval<T> interval : intervals.getIntervals()) {
+      Interval<T> last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && last.getHigh() != null && !last.isHighInclusive()
+          && !interval.isLowInclusive()
+          && last.getHigh().compareTo(interval.getLow()) == 0) {
+        merged.set(merged.size() - 1, new Interval<>(last.getLow(), last.isLowInclusive(),
+            interval.getHigh(), interval.isHighInclusive()));
+        points.add(interval.getLow());
+      } else {
+        merged.add(interval);
+      }
+    }
+    if (merged.size() == 1 && merged.get(0).getLow() == null
+        && merged.get(0).getHigh() == null && points.size() == 1) {
+      list.add(createRange(XRangeSign.I, XRangeOption.NE, points.get(0), null));
+      return list;
+    }
+    if (!excludable) {
+      merged = intervals.getIntervals();
+    } else {
+      for (T point : points)
+        excludes.add(createRange(XRangeSign.E, XRangeOption.EQ, point, null));
+    }
+    for (Interval<T> interval : merged) {
+      T low = interval.getLow(), high = interval.getHigh();
+      if (low == null && high == null) {
+        list.add(createRange(XRangeSign.I, XRangeOption.NE, null, null));
+      } else if (interval.isPoint()) {
+        list.add(createRange(XRangeSign.I, XRangeOption.EQ, low, null));
+      } else if (low == null) {
+        XRangeOption option = interval.isHighInclusive() ? XRangeOption.LE : XRangeOption.LT;
+        list.add(createRange(XRangeSign.I, option, high, null));
+      } else if (high == null) {
+        XRangeOption option = interval.isLowInclusive() ? XRangeOption.GE : XRangeOption.GT;
+        list.add(createRange(XRangeSign.I, option, low, null));
+      } else {
+        boolean closed = interval.isLowInclusive() && interval.isHighInclusive();
+        if (!closed && !excludable) return null;
+        list.add(createRange(XRangeSign.I, XRangeOption.BT, low, high));
+        // bounds of open interval not in other intervals
+        if (!interval.isLowInclusive())
+          excludes.add(createRange(XRangeSign.E, XRangeOption.EQ, low, null));
+        if (!interval.isHighInclusive())
+          excludes.add(createRange(XRangeSign.E, XRangeOption.EQ, high, null));
+      }
+    }
+    list.addAll(excludes);
+    return list;
+  }
+
+  /**
+   * create excluding ranges not excluding empty values for the intervals, returns null if
+   * any interval can not be excluded exactly
+   */
+  private List<XRangeItem<T>> createExcluding(XRangeIntervals<T> intervals) {
+    List<XRangeItem<T>> list = new ArrayList<>();
+    for (Interval<T> interval : intervals.getIntervals()) {
+      T low = interval.getLow(), high = interval.getHigh();
+      if (low == null && high == null) {
+        list.add(createRange(XRangeSign.E, XRangeOption.NE, null, null));
+      } else if (interval.isPoint()) {
+        list.add(createRange(XRangeSign.E, XRangeOption.EQ, low, null));
+      } else if (high == null) {
+        XRangeOption option = interval.isLowInclusive() ? XRangeOption.GE : XRangeOption.GT;
+        list.add(createRange(XRangeSign.E, option, low, null));
+      } else if ((low == null || interval.isLowInclusive()) && interval.isHighInclusive()) {
+        list.add(createRange(XRangeSign.E, XRangeOption.BT, low, high));
+      } else {
+        return null;
+      }
+    }
+    return list;
+  }
+
+  private XRangeItem<T> copyRange(XRangeItem<T> range) {
+    return createRange(range.getSign(), range.getOption(), range.getLow(), range.getHigh());
+  }
+
+  // the option was set again since the constructor may change option by values
+  private XRangeItem<T> createRange(XRangeSign sign, XRangeOption option, T low, T high) {
+    XRangeItem<T> range = new XRangeItem<>(sign, option, low, high);
+    range.setOption(option);
+    return range;
+  }
+}
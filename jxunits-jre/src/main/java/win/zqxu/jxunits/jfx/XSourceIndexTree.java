@@ -0,0 +1,350 @@
+package win.zqxu.jxunits.jfx;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Order statistic tree (treap) to map between source index and item of a transformation
+ * list.
+ * 
+ * <p>
+ * only the visible source rows hold a node, the hidden source rows before a node are
+ * counted in the gap of the node, and the hidden rows after the last node are counted in
+ * the tail. so inserting or removing source rows only changes one gap, the source index of
+ * nodes after it follow automatically, all operations cost O(log n)
+ * </p>
+ * 
+ * @author zqxu
+ */
+class XSourceIndexTree<E> {
+  private Node<E> root;
+  private int tail;
+  private int seed = 0x2545F491;
+  // offset in the gap (or tail) of last found node, see ceiling
+  private int offset;
+
+  /**
+   * Get source size, include visible and hidden rows
+   * 
+   * @return source size
+   */
+  public int size() {
+    return weight(root) + tail;
+  }
+
+  /**
+   * Clear all nodes, all rows become hidden
+   * 
+   * @param size
+   *          the source size
+   */
+  public void clear(int size) {
+    root = null;
+    tail = size;
+  }
+
+  /**
+   * Get value at the source index
+   * 
+   * @param index
+   *          the source index
+   * @return the value or null if the row at the index is hidden
+   */
+  public E get(int index) {
+    Node<E> node = ceiling(index);
+    return node != null && offset == node.gap ? node.value : null;
+  }
+
+  /**
+   * Get number of visible rows before the source index
+   * 
+   * @param index
+   *          the source index
+   * @return number of visible rows before the index
+   */
+  public int rank(int index) {
+    int rank = 0;
+    Node<E> node = root;
+    while (node != null) {
+      int left = weight(node.left);
+      if (index < left) {
+        node = node.left;
+        continue;
+      }
+      index -= left;
+      rank += count(node.left);
+      if (index <= node.gap) return rank;
+      rank++;
+      index -= node.gap + 1;
+      node = node.right;
+    }
+    return rank;
+  }
+
+  /**
+   * Make the hidden row at the source index visible
+   * 
+   * @param index
+   *          the source index
+   * @param value
+   *          the value for the row
+   * @return node of the row
+   * @throws IllegalStateException
+   *           if the row at the index is already visible
+   */
+  public Node<E> insert(int index, E value) {
+    Node<E> next = ceiling(index);
+    Node<E> node = new Node<>(value, offset, nextPriority());
+    if (next == null) {
+      if (offset >= tail) throw new IndexOutOfBoundsException(index + ">=" + size());
+      tail -= offset + 1;
+      if (root == null)
+        root = node;
+      else
+        link(rightmost(root), node, false);
+    } else {
+      if (offset == next.gap) throw new IllegalStateException("visible row " + index);
+      next.gap -= offset + 1;
+      if (next.left == null)
+        link(next, node, true);
+      else
+        link(rightmost(next.left), node, false);
+    }
+    updateUpward(node);
+    while (node.parent != null && node.priority > node.parent.priority)
+      rotateUp(node);
+    return node;
+  }
+
+  /**
+   * Make the visible row of the node hidden, the node will be detached from the tree
+   * 
+   * @param node
+   *          the node
+   */
+  public void remove(Node<E> node) {
+    Node<E> next = successor(node);
+    while (node.left != null && node.right != null)
+      rotateUp(node.left.priority > node.right.priority ? node.left : node.right);
+    Node<E> child = node.left != null ? node.left : node.right;
+    Node<E> parent = node.parent;
+    if (child != null) child.parent = parent;
+    if (parent == null)
+      root = child;
+    else if (parent.left == node)
+      parent.left = child;
+    else
+      parent.right = child;
+    updateUpward(parent);
+    if (next == null)
+      tail += node.gap + 1;
+    else {
+      next.gap += node.gap + 1;
+      updateUpward(next);
+    }
+    node.parent = node.left = node.right = null;
+  }
+
+  /**
+   * Insert hidden rows at the source index
+   * 
+   * @param index
+   *          the source index
+   * @param count
+   *          number of rows
+   */
+  public void insertRows(int index, int count) {
+    Node<E> next = ceiling(index);
+    if (next == null)
+      tail += count;
+    else {
+      next.gap += count;
+      updateUpward(next);
+    }
+  }
+
+  /**
+   * Remove hidden rows at the source index, all rows in the range must be hidden
+   * 
+   * @param index
+   *          the source index
+   * @param count
+   *          number of rows
+   * @throws IllegalStateException
+   *           if there is visible row in the range
+   */
+  public void removeRows(int index, int count) {
+    Node<E> next = ceiling(index);
+    int available = next == null ? tail : next.gap;
+    if (offset + count > available)
+      throw new IllegalStateException("visible row in " + index + "+" + count);
+    if (next == null)
+      tail -= count;
+    else {
+      next.gap -= count;
+      updateUpward(next);
+    }
+  }
+
+  /**
+   * Perform action for source index of each hidden row, in ascending order
+   * 
+   * @param action
+   *          the action
+   */
+  public void forEachHidden(IntConsumer action) {
+    int index = 0;
+    for (Node<E> node = leftmost(root); node != null; node = successor(node)) {
+      for (int i = 0; i < node.gap; i++)
+        action.accept(index++);
+      index++;
+    }
+    for (int i = 0; i < tail; i++)
+      action.accept(index++);
+  }
+
+  // find node whose gap or itself covered the index, null for the tail
+  private Node<E> ceiling(int index) {
+    Node<E> node = root;
+    while (node != null) {
+      int left = weight(node.left);
+      if (index < left) {
+        node = node.left;
+        continue;
+      }
+      index -= left;
+      if (index <= node.gap) {
+        offset = index;
+        return node;
+      }
+      index -= node.gap + 1;
+      node = node.right;
+    }
+    offset = index;
+    return null;
+  }
+
+  private Node<E> successor(Node<E> node) {
+    if (node.right != null) {
+      node = node.right;
+      while (node.left != null)
+        node = node.left;
+      return node;
+    }
+    while (node.parent != null && node.parent.right == node)
+      node = node.parent;
+    return node.parent;
+  }
+
+  private Node<E> leftmost(Node<E> node) {
+    while (node != null && node.left != null)
+      node = node.left;
+    return node;
+  }
+
+  private Node<E> rightmost(Node<E> node) {
+    while (node.right != null)
+      node = node.right;
+    return node;
+  }
+
+  private void link(Node<E> parent, Node<E> child, boolean left) {
+    if (left)
+      parent.left = child;
+    else
+      parent.right = child;
+    child.parent = parent;
+  }
+
+  private void rotateUp(Node<E> node) {
+    Node<E> parent = node.parent, grand = parent.parent;
+    if (parent.left == node) {
+      parent.left = node.right;
+      if (node.right != null) node.right.parent = parent;
+      node.right = parent;
+    } else {
+      parent.right = node.left;
+      if (node.left != null) node.left.parent = parent;
+      node.left = parent;
+    }
+    parent.parent = node;
+    node.parent = grand;
+    if (grand == null)
+      root = node;
+    else if (grand.left == parent)
+      grand.left = node;
+    else
+      grand.right = node;
+    parent.update();
+    node.update();
+  }
+
+  private void updateUpward(Node<E> node) {
+    for (; node != null; node = node.parent)
+      node.update();
+  }
+
+  private int nextPriority() {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    return seed;
+  }
+
+  private static int weight(Node<?> node) {
+    return node == null ? 0 : node.weight;
+  }
+
+  private static int count(Node<?> node) {
+    return node == null ? 0 : node.count;
+  }
+
+  /**
+   * Tree node for visible row
+   */
+  static class Node<E> {
+    private final E value;
+    private final int priority;
+    private Node<E> parent, left, right;
+    // hidden rows before this node
+    private int gap;
+    // rows (visible and hidden) in this sub tree
+    private int weight;
+    // nodes in this sub tree
+    private int count;
+
+    private Node(E value, int gap, int priority) {
+      this.value = value;
+      this.gap = gap;
+      this.priority = priority;
+      update();
+    }
+
+    private void update() {
+      weight = weight(left) + gap + 1 + weight(right);
+      count = count(left) + 1 + count(right);
+    }
+
+    /**
+     * Get value of this node
+     * 
+     * @return value of this node
+     */
+    public E getValue() {
+      return value;
+    }
+
+    /**
+     * Get source index of this node, should not be called after the node removed
+     * 
+     * @return source index
+     */
+    public int index() {
+      int index = weight(left) + gap;
+      for (Node<E> node = this; node.parent != null; node = node.parent) {
+        if (node.parent.right == node)
+          index += weight(node.parent.left) + node.parent.gap + 1;
+      }
+      return index;
+    }
+  }
+}
@@ -1,11 +1,20 @@
 package win.zqxu.jxunits.jfx;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
@@ -49,14 +58,14 @@ public class XSummaryComber<S> {
     return orders;
   }
 
-  private ObservableList<XSummarySummer<S, ?>> summers = FXCollections.observableArrayList();
+  private ObservableList<XSummaryAggregator<S, ?>> summers = FXCollections.observableArrayList();
 
   /**
    * Get observable summers list, can change summer by the list
    * 
    * @return observable summers list
    */
-  public final ObservableList<XSummarySummer<S, ?>> getSummers() {
+  public final ObservableList<XSummaryAggregator<S, ?>> getSummers() {
     return summers;
   }
 
@@ -85,6 +94,33 @@ public class XSummaryComber<S> {
     this.totalProduce.set(totalProduce);
   }
 
+  private IntegerProperty parallelThreshold = new SimpleIntegerProperty();
+
+  public final IntegerProperty parallelThresholdProperty() {
+    return parallelThreshold;
+  }
+
+  /**
+   * Get minimum rows to filter, sort and summary in parallel, default is 0 (never)
+   * 
+   * @return minimum rows to generate in parallel
+   */
+  public final int getParallelThreshold() {
+    return parallelThreshold.get();
+  }
+
+  /**
+   * Set minimum rows to filter, sort and summary in parallel (fork/join common pool), the
+   * predicate, orders and summers must be able to read source items concurrently. 0 to
+   * never generate in parallel
+   * 
+   * @param parallelThreshold
+   *          minimum rows to generate in parallel
+   */
+  public final void setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold.set(parallelThreshold);
+  }
+
   /**
    * summary order interface
    * 
@@ -123,11 +159,40 @@ public class XSummaryComber<S> {
   }
 
   /**
-   * summary summer interface
+   * summary aggregator interface, aggregate values of detail items into summary value by
+   * the accumulator created for each summary item. the {@link XSummarySummer} aggregate by
+   * sum and subtract, other aggregators such as minimum, maximum, count, distinct count
+   * and average keep whatever needed in the accumulator to update the summary value when a
+   * value added or removed, without scanning values of the summary item again
+   * 
+   * @author zqxu
+   */
+  public static interface XSummaryAggregator<S, T> {
+    /**
+     * Get observable value to aggregate from the item, the value type may differ from the
+     * summary value type T, for example, values of any type counted to Long
+     * 
+     * @param item
+     *          the item
+     * @return observable value
+     */
+    public ObservableValue<?> getObservableValue(S item);
+
+    /**
+     * Create accumulator to aggregate values for a summary item, the accumulator must
+     * accept values of {@link #getObservableValue(Object)}
+     * 
+     * @return new accumulator
+     */
+    public XSummaryAccumulator<?, T> createAccumulator();
+  }
+
+  /**
+   * summary summer interface, the aggregator sum and subtract values
    * 
    * @author zqxu
    */
-  public static interface XSummarySummer<S, T> {
+  public static interface XSummarySummer<S, T> extends XSummaryAggregator<S, T> {
     /**
      * Get observable value for this summer from the item
      * 
@@ -135,6 +200,7 @@ public class XSummaryComber<S> {
      *          the item
      * @return observable value
      */
+    @Override
     public ObservableValue<T> getObservableValue(S item);
 
     /**
@@ -158,5 +224,334 @@ public class XSummaryComber<S> {
      * @return summing result
      */
     public T subtract(T summing, T value);
+
+    /**
+     * Create accumulator to accumulate values for a summary item, the default accumulator
+     * sum and subtract values by this summer
+     * 
+     * @return new accumulator
+     */
+    @Override
+    public default XSummaryAccumulator<T, T> createAccumulator() {
+      return new XSummarySummingAccumulator<>(this);
+    }
+  }
+
+  /**
+   * summary accumulator interface, hold the summary value of a summer for a summary item,
+   * values of type V added and removed, the summary value is type T
+   * 
+   * @author zqxu
+   */
+  public static interface XSummaryAccumulator<V, T> {
+    /**
+     * Add value to the accumulator
+     * 
+     * @param value
+     *          the value to add, maybe null
+     */
+    public void add(V value);
+
+    /**
+     * Remove value from the accumulator
+     * 
+     * @param value
+     *          the value to remove, maybe null
+     */
+    public void remove(V value);
+
+    /**
+     * Merge values accumulated by other accumulator created by the same summer
+     * 
+     * @param other
+     *          the other accumulator
+     */
+    public void merge(XSummaryAccumulator<V, T> other);
+
+    /**
+     * Get accumulated value
+     * 
+     * @return accumulated value
+     */
+    public T getValue();
+  }
+
+  /**
+   * accumulator sum and subtract values by the summer
+   * 
+   * @author zqxu
+   */
+  public static class XSummarySummingAccumulator<T> implements XSummaryAccumulator<T, T> {
+    private final XSummarySummer<?, T> summer;
+    private T value;
+
+    public XSummarySummingAccumulator(XSummarySummer<?, T> summer) {
+      this.summer = summer;
+    }
+
+    @Override
+    public void add(T value) {
+      this.value = summer.sum(this.value, value);
+    }
+
+    @Override
+    public void remove(T value) {
+      this.value = summer.subtract(this.value, value);
+    }
+
+    @Override
+    public void merge(XSummaryAccumulator<T, T> other) {
+      add(other.getValue());
+    }
+
+    @Override
+    public T getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * accumulator of minimum or maximum value, values kept in ordered map with count of each
+   * value, so add and remove cost O(log n). null values were ignored
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryExtremeAccumulator<T> implements XSummaryAccumulator<T, T> {
+    private final TreeMap<T, Integer> counts;
+    private final boolean maximum;
+
+    /**
+     * Constructor
+     * 
+     * @param comparator
+     *          the comparator, null for natural ordering
+     * @param maximum
+     *          true for maximum value, false for minimum value
+     */
+    public XSummaryExtremeAccumulator(Comparator<? super T> comparator, boolean maximum) {
+      this.counts = new TreeMap<>(comparator);
+      this.maximum = maximum;
+    }
+
+    @Override
+    public void add(T value) {
+      if (value != null) counts.merge(value, 1, Integer::sum);
+    }
+
+    @Override
+    public void remove(T value) {
+      if (value != null)
+        counts.computeIfPresent(value, (v, count) -> count == 1 ? null : count - 1);
+    }
+
+    @Override
+    public void merge(XSummaryAccumulator<T, T> other) {
+      XSummaryExtremeAccumulator<T> extreme = (XSummaryExtremeAccumulator<T>) other;
+      extreme.counts.forEach((value, count) -> counts.merge(value, count, Integer::sum));
+    }
+
+    @Override
+    public T getValue() {
+      if (counts.isEmpty()) return null;
+      return maximum ? counts.lastKey() : counts.firstKey();
+    }
+  }
+
+  /**
+   * accumulator of count of values, the value is Long. null values were not counted
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryCountAccumulator<V> implements XSummaryAccumulator<V, Long> {
+    private long count;
+
+    @Override
+    public void add(V value) {
+      if (value != null) count++;
+    }
+
+    @Override
+    public void remove(V value) {
+      if (value != null) count--;
+    }
+
+    @Override
+    public void merge(XSummaryAccumulator<V, Long> other) {
+      count += ((XSummaryCountAccumulator<V>) other).count;
+    }
+
+    @Override
+    public Long getValue() {
+      return count;
+    }
+  }
+
+  /**
+   * accumulator of count of distinct values, the value is Long. values kept in hash map
+   * with count of each value, so add and remove cost O(1). null values were not counted
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryDistinctCountAccumulator<V>
+      implements XSummaryAccumulator<V, Long> {
+    private final Map<V, Integer> counts = new HashMap<>();
+
+    @Override
+    public void add(V value) {
+      if (value != null) counts.merge(value, 1, Integer::sum);
+    }
+
+    @Override
+    public void remove(V value) {
+      if (value != null)
+        counts.computeIfPresent(value, (v, count) -> count == 1 ? null : count - 1);
+    }
+
+    @Override
+    public void merge(XSummaryAccumulator<V, Long> other) {
+      XSummaryDistinctCountAccumulator<V> distinct =
+          (XSummaryDistinctCountAccumulator<V>) other;
+      distinct.counts.forEach((value, count) -> counts.merge(value, count, Integer::sum));
+    }
+
+    @Override
+    public Long getValue() {
+      return (long) counts.size();
+    }
+  }
+
+  /**
+   * conjunction of predicates, when the predicate changed between conjunctions, summary list
+   * only test the visible rows with the added predicates if narrowed, and only test the
+   * hidden rows if widened
+   * <p>
+   * the predicates were tested in adaptive order, one of every {@value #SAMPLE_INTERVAL}
+   * tests is sampled, all predicates timed and counted, and the predicates reordered every
+   * {@value #REORDER_SAMPLES} samples to test cheap and selective predicates first, see
+   * {@link #getOrderedPredicates()} and {@link #getStatistics()}. so the predicates should
+   * have no side effect
+   * </p>
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryConjunction<S> implements Predicate<S> {
+    /**
+     * one of this many tests sampled
+     */
+    public static final int SAMPLE_INTERVAL = 64;
+    /**
+     * reorder predicates after this many samples
+     */
+    public static final int REORDER_SAMPLES = 256;
+    private final List<Predicate<S>> predicates;
+    private volatile List<Predicate<S>> ordered;
+    // only to choose samples, lost updates between threads are harmless
+    private int tests;
+    // statistics of the predicates, halved after reordered, guarded by this
+    private final long[] passed, nanos;
+    private long samples;
+    private int sampled;
+
+    public XSummaryConjunction(List<? extends Predicate<S>> predicates) {
+      this.predicates = Collections.unmodifiableList(new ArrayList<>(predicates));
+      this.ordered = this.predicates;
+      this.passed = new long[predicates.size()];
+      this.nanos = new long[predicates.size()];
+    }
+
+    /**
+     * Get unmodifiable predicates of this conjunction
+     * 
+     * @return unmodifiable predicates
+     */
+    public List<Predicate<S>> getPredicates() {
+      return predicates;
+    }
+
+    /**
+     * Get unmodifiable predicates in current test order
+     * 
+     * @return unmodifiable predicates in test order
+     */
+    public List<Predicate<S>> getOrderedPredicates() {
+      return ordered;
+    }
+
+    /**
+     * Get statistics of the predicates in current test order for tuning, one line per
+     * predicate with its pass rate and average nanoseconds of the samples
+     * 
+     * @return statistics of the predicates
+     */
+    public synchronized String getStatistics() {
+      StringBuilder builder = new StringBuilder();
+      for (Predicate<S> predicate : ordered) {
+        int index = predicates.indexOf(predicate);
+        builder.append(index).append(": ").append(predicate);
+        if (samples > 0) {
+          builder.append(String.format(", pass %.1f%%, %dns", passed[index] * 100.0 / samples,
+              nanos[index] / samples));
+        }
+        builder.append(System.lineSeparator());
+      }
+      return builder.toString();
+    }
+
+    @Override
+    public boolean test(S item) {
+      if (++tests % SAMPLE_INTERVAL == 0) return sample(item);
+      List<Predicate<S>> ordered = this.ordered;
+      for (int i = 0; i < ordered.size(); i++) {
+        if (!ordered.get(i).test(item)) return false;
+      }
+      return true;
+    }
+
+    // test all predicates and record the statistics
+    private boolean sample(S item) {
+      boolean[] passes = new boolean[predicates.size()];
+      long[] costs = new long[predicates.size()];
+      boolean result = true;
+      for (int i = 0; i < passes.length; i++) {
+        long start = System.nanoTime();
+        passes[i] = predicates.get(i).test(item);
+        costs[i] = System.nanoTime() - start;
+        result &= passes[i];
+      }
+      record(passes, costs);
+      return result;
+    }
+
+    private synchronized void record(boolean[] passes, long[] costs) {
+      for (int i = 0; i < passes.length; i++) {
+        if (passes[i]) passed[i]++;
+        nanos[i] += costs[i];
+      }
+      samples++;
+      if (++sampled < REORDER_SAMPLES) return;
+      sampled = 0;
+      reorder();
+    }
+
+    // order by cost per rejection, the optimal order for independent predicates
+    private void reorder() {
+      Integer[] indexes = new Integer[predicates.size()];
+      double[] ranks = new double[indexes.length];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+        ranks[i] = nanos[i] / (samples - passed[i] + 1.0);
+      }
+      Arrays.sort(indexes, (i1, i2) -> Double.compare(ranks[i1], ranks[i2]));
+      List<Predicate<S>> list = new ArrayList<>();
+      for (int index : indexes)
+        list.add(predicates.get(index));
+      ordered = Collections.unmodifiableList(list);
+      // halve the statistics to follow changes of the data
+      for (int i = 0; i < indexes.length; i++) {
+        passed[i] /= 2;
+        nanos[i] /= 2;
+      }
+      samples /= 2;
+    }
   }
 }
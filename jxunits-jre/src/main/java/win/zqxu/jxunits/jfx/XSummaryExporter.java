@@ -0,0 +1,278 @@
+package win.zqxu.jxunits.jfx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.util.Callback;
+import javafx.util.StringConverter;
+import win.zqxu.jxunits.jfx.XSummaryTableColumn.XSummaryDataFeatures;
+
+/**
+ * streaming exporter of {@link XSummaryTableView} items, write detail, subtotal and total
+ * rows as CSV or TSV text, for example:
+ * <p>
+ * XSummaryExporter&lt;Order&gt; exporter = tableView.createExporter(XSummaryExporter.CSV);
+ * <br>
+ * executor.execute(() -&gt; exporter.export(stream, StandardCharsets.UTF_8));
+ * </p>
+ * 
+ * <p>
+ * the exporter must be created in JavaFX application thread, it takes the header text,
+ * source value factory and converter of the visible {@link XSummaryTableColumn}, and the
+ * rows, summary values were read while creating, so later changes of the table and columns
+ * not affect the export. values of detail rows were not copied, they were read from source
+ * items through the taken value factory while exporting, so the source items must not be
+ * changed until the export finished (immutable source items, or a copy of source list), and
+ * the value factory and converter must be able to run out of JavaFX application thread
+ * </p>
+ * 
+ * <p>
+ * the text written through a buffer of {@link #getBufferSize()} chars, no rows copied or
+ * formatted in advance
+ * </p>
+ * 
+ * @author zqxu
+ */
+public class XSummaryExporter<S> {
+  /**
+   * separator of comma separated values
+   */
+  public static final char CSV = ',';
+  /**
+   * separator of tab separated values
+   */
+  public static final char TSV = '\t';
+  private final char separator;
+  private final List<ExportColumn<S, ?>> columns = new ArrayList<>();
+  // source item for detail row, summary values for summary row
+  private final Object[] rows;
+  private boolean headerExported = true;
+  private int bufferSize = 65536;
+
+  /**
+   * Constructor, must be called in JavaFX application thread
+   * 
+   * @param table
+   *          the table to export
+   * @param separator
+   *          the separator, {@link #CSV} or {@link #TSV}
+   */
+  @SuppressWarnings("unchecked")
+  public XSummaryExporter(XSummaryTableView<S> table, char separator) {
+    this.separator = separator;
+    for (TableColumn<XSummaryItem<S>, ?> column : table.getVisibleLeafColumns()) {
+      if (column instanceof XSummaryTableColumn)
+        columns.add(new ExportColumn<>(table, (XSummaryTableColumn<S, ?>) column));
+    }
+    ObservableList<XSummaryItem<S>> items = table.getItems();
+    int size = items == null ? 0 : items.size();
+    rows = new Object[size];
+    for (int i = 0; i < size; i++) {
+      XSummaryItem<S> item = items.get(i);
+      rows[i] = item.isSummary() ? new SummaryRow(readSummaryTexts(item))
+          : item.getSourceItem();
+    }
+  }
+
+  // summary values may be not the column type (count and average), converted here
+  private String[] readSummaryTexts(XSummaryItem<S> item) {
+    String[] texts = new String[columns.size()];
+    for (int i = 0; i < texts.length; i++)
+      texts[i] = columns.get(i).column.getCellText(item);
+    return texts;
+  }
+
+  /**
+   * Get the separator
+   * 
+   * @return the separator
+   */
+  public char getSeparator() {
+    return separator;
+  }
+
+  /**
+   * Get row count to export, exclude the header
+   * 
+   * @return row count
+   */
+  public int getRowCount() {
+    return rows.length;
+  }
+
+  /**
+   * Determine whether the column header exported as first line, default is true
+   * 
+   * @return true or false
+   */
+  public boolean isHeaderExported() {
+    return headerExported;
+  }
+
+  /**
+   * Set whether the column header exported as first line
+   * 
+   * @param headerExported
+   *          true or false
+   */
+  public void setHeaderExported(boolean headerExported) {
+    this.headerExported = headerExported;
+  }
+
+  /**
+   * Get size of write buffer in chars, default is 65536
+   * 
+   * @return buffer size
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Set size of write buffer in chars
+   * 
+   * @param bufferSize
+   *          buffer size
+   */
+  public void setBufferSize(int bufferSize) {
+    if (bufferSize <= 0) throw new IllegalArgumentException("buffer size <= 0");
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Export to output stream, can be called in any thread, the stream was flushed but not
+   * closed
+   * 
+   * @param stream
+   *          the output stream
+   * @param charset
+   *          the charset
+   * @throws IOException
+   *           if I/O error occurred
+   */
+  public void export(OutputStream stream, Charset charset) throws IOException {
+    export(new OutputStreamWriter(stream, charset));
+  }
+
+  /**
+   * Export to writer, can be called in any thread, the writer was flushed but not closed
+   * 
+   * @param writer
+   *          the writer
+   * @throws IOException
+   *           if I/O error occurred, or the thread interrupted
+   */
+  @SuppressWarnings("unchecked")
+  public void export(Writer writer) throws IOException {
+    BufferedWriter buffer = new BufferedWriter(writer, bufferSize);
+    if (headerExported) {
+      for (int i = 0; i < columns.size(); i++) {
+        if (i > 0) buffer.write(separator);
+        writeText(buffer, columns.get(i).text);
+      }
+      buffer.write("\r\n");
+    }
+    for (Object row : rows) {
+      if (row instanceof SummaryRow)
+        writeSummaryRow(buffer, ((SummaryRow) row).texts);
+      else
+        writeDetailRow(buffer, (S) row);
+      buffer.write("\r\n");
+      if (Thread.currentThread().isInterrupted())
+        throw new InterruptedIOException("export interrupted");
+    }
+    buffer.flush();
+  }
+
+  private void writeSummaryRow(Writer writer, String[] texts) throws IOException {
+    for (int i = 0; i < texts.length; i++) {
+      if (i > 0) writer.write(separator);
+      writeText(writer, texts[i]);
+    }
+  }
+
+  private void writeDetailRow(Writer writer, S sourceItem) throws IOException {
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) writer.write(separator);
+      writeText(writer, columns.get(i).toDetailString(sourceItem));
+    }
+  }
+
+  // quote the text if contains separator, quote or line break
+  private void writeText(Writer writer, String text) throws IOException {
+    if (text == null || text.isEmpty()) return;
+    boolean quoting = false;
+    for (int i = 0; i < text.length() && !quoting; i++) {
+      char ch = text.charAt(i);
+      quoting = ch == separator || ch == '"' || ch == '\r' || ch == '\n';
+    }
+    if (!quoting) {
+      writer.write(text);
+      return;
+    }
+    writer.write('"');
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) != '"') continue;
+      writer.write(text, start, i + 1 - start);
+      writer.write('"');
+      start = i + 1;
+    }
+    writer.write(text, start, text.length() - start);
+    writer.write('"');
+  }
+
+  /**
+   * column properties taken in JavaFX application thread, used while exporting
+   * 
+   * @author zqxu
+   */
+  private static class ExportColumn<S, T> {
+    private final TableView<XSummaryItem<S>> table;
+    private final XSummaryTableColumn<S, T> column;
+    private final String text;
+    private final Callback<XSummaryDataFeatures<S, T>, ObservableValue<T>> factory;
+    private final StringConverter<T> converter;
+
+    public ExportColumn(TableView<XSummaryItem<S>> table,
+        XSummaryTableColumn<S, T> column) {
+      this.table = table;
+      this.column = column;
+      this.text = column.getText();
+      this.factory = column.getSourceValueFactory();
+      this.converter = column.getConverter();
+    }
+
+    // same as XSummaryTableColumn.toString with the taken converter
+    public String toString(T value) {
+      if (converter != null) return converter.toString(value);
+      return value == null ? "" : String.valueOf(value);
+    }
+
+    public String toDetailString(S sourceItem) {
+      if (factory == null) return toString(null);
+      ObservableValue<T> value =
+          factory.call(new XSummaryDataFeatures<>(table, column, sourceItem));
+      return toString(value == null ? null : value.getValue());
+    }
+  }
+
+  private static class SummaryRow {
+    private final String[] texts;
+
+    public SummaryRow(String[] texts) {
+      this.texts = texts;
+    }
+  }
+}
@@ -1,8 +1,8 @@
 package win.zqxu.jxunits.jfx;
 
 import javafx.beans.value.ObservableValue;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
-import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
 
 /**
  * Interface for wrap source or summary item, for summary item has two types: subtotal or
@@ -51,7 +51,9 @@ public interface XSummaryItem<S> {
   public <T> ObservableValue<T> getSummaryValue(XSummaryOrder<S, T> order);
 
   /**
-   * Get summary value for the summer
+   * Get summary value for the summer, the value of detail item is the value to sum only
+   * for {@link XSummaryComber.XSummarySummer}, null for other aggregators whose value to
+   * aggregate is not the summary value type
    * 
    * @param <T>
    *          the value type
@@ -59,5 +61,5 @@ public interface XSummaryItem<S> {
    *          the summer
    * @return summary value
    */
-  public <T> ObservableValue<T> getSummaryValue(XSummarySummer<S, T> summer);
+  public <T> ObservableValue<T> getSummaryValue(XSummaryAggregator<S, T> summer);
 }
@@ -1,17 +1,31 @@
 package win.zqxu.jxunits.jfx;
 
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Predicate;
 
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ObjectPropertyBase;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -19,7 +33,9 @@ import javafx.beans.value.WeakChangeListener;
 import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.TransformationList;
-import javafx.scene.control.TableColumn.SortType;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAccumulator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryConjunction;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
 import win.zqxu.jxunits.jre.XObjectUtils;
@@ -38,10 +54,21 @@ import win.zqxu.jxunits.jre.XObjectUtils;
 public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
   private ItemComparator<S> itemComparator;
   private List<XSummaryOrder<S, ?>> orders;
-  private List<XSummarySummer<S, ?>> summers;
+  private List<XSummaryAggregator<S, ?>> summers;
+  private Slots<S> slots = new Slots<>(null, null);
+  private Object[] scratchValues;
+  // subtotal items indexed by group values, the probe key is reused by every lookup
+  private Map<GroupKey, SummaryItemImpl<S>> subtotalIndex = new HashMap<>();
+  private GroupKey probeKey = new GroupKey(null, 0);
+  // subtotal with the probe key to search position of missed group, never added to items
+  private SummaryItemImpl<S> probeSubtotal = new SummaryItemImpl<>(true);
   private boolean totalProduce;
   private SummaryItemImpl<S>[] items;
   private int size;
+  // position of items before this index are valid, see indexOfItem
+  private int validPositions;
+  // detail items by source index, the filtered out source items are hidden rows
+  private XSourceIndexTree<SummaryItemImpl<S>> sourceTree = new XSourceIndexTree<>();
 
   public XSummaryList(ObservableList<S> source) {
     super(source);
@@ -56,6 +83,20 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     return get(index).getSourceIndex();
   }
 
+  /**
+   * Get index of the item wrapped the source item at the source index, returns -1 if the
+   * source item filtered out or the source index out of range. not annotated with
+   * override since the method only declared by TransformationList of JavaFX 9 or later
+   * 
+   * @param sourceIndex
+   *          the source index
+   * @return index of the item or -1
+   */
+  public int getViewIndex(int sourceIndex) {
+    if (sourceIndex < 0 || sourceIndex >= getSource().size()) return -1;
+    return findSourceItem(sourceIndex);
+  }
+
   @Override
   public XSummaryItem<S> get(int index) {
     if (index >= size)
@@ -88,7 +129,8 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     return get(index).isSummary();
   }
 
-  private ChangeListener<Predicate<S>> predicateListener = (v, o, n) -> handlePredicateChange();
+  private ChangeListener<Predicate<S>> predicateListener =
+      (v, o, n) -> handlePredicateChange(o, n);
   private InvalidationListener ordersListener = v -> handleOrdersChange();
   private InvalidationListener summersListener = v -> handleSummersChange();
   private ChangeListener<Boolean> totalListener = (v, o, n) -> handleTotalProduceChange();
@@ -120,8 +162,9 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
           buildItemComparator();
           buildOrders();
           buildSummers();
+          buildSlots();
           buildTotalProduce();
-          doFullGeneration();
+          doRegeneration(true);
           if (newComber != null) {
             newComber.predicateProperty().addListener(predicateListener);
             newComber.getOrders().addListener(ordersListener);
@@ -154,28 +197,230 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     this.comber.set(comber);
   }
 
-  private void handlePredicateChange() {
-    doFullGeneration();
+  private BooleanProperty backgroundGeneration =
+      new SimpleBooleanProperty(this, "backgroundGeneration") {
+        @Override
+        protected void invalidated() {
+          if (!get() && runningGeneration != null) {
+            stopGeneration();
+            doFullGeneration();
+          }
+        }
+      };
+
+  /**
+   * background generation property, default is false
+   * 
+   * @return background generation property
+   */
+  public final BooleanProperty backgroundGenerationProperty() {
+    return backgroundGeneration;
+  }
+
+  /**
+   * Determine whether regenerate the list in background
+   * 
+   * @return true or false
+   */
+  public final boolean isBackgroundGeneration() {
+    return backgroundGeneration.get();
+  }
+
+  /**
+   * Set whether regenerate the list in background when the predicate, orders or summers
+   * of the comber changed, default is false.
+   * 
+   * <p>
+   * the filtering, sorting and summary calculation will run in background thread over a
+   * snapshot of the source, the list keeps the previous items until the generation
+   * finished, then all items replaced in one change. so the predicate, orders and summers
+   * must be able to read source items out of JavaFX application thread
+   * </p>
+   * 
+   * @param backgroundGeneration
+   *          true or false
+   */
+  public final void setBackgroundGeneration(boolean backgroundGeneration) {
+    this.backgroundGeneration.set(backgroundGeneration);
+  }
+
+  private BooleanProperty valueListening =
+      new SimpleBooleanProperty(this, "valueListening", true) {
+        @Override
+        protected void invalidated() {
+          doRegeneration(true);
+        }
+      };
+
+  /**
+   * value listening property, default is true
+   * 
+   * @return value listening property
+   */
+  public final BooleanProperty valueListeningProperty() {
+    return valueListening;
+  }
+
+  /**
+   * Determine whether listen to order and summer values of every row
+   * 
+   * @return true or false
+   */
+  public final boolean isValueListening() {
+    return valueListening.get();
+  }
+
+  /**
+   * Set whether listen to order and summer values of every row, default is true.
+   * 
+   * <p>
+   * if false, no listener added to the values, the values read once when the row added,
+   * and read again only when the source list fired update change (source list created with
+   * extractor) or {@link #rowChanged(int)} called. this saves a lot of memory for large
+   * source list with many orders and summers
+   * </p>
+   * 
+   * <p>
+   * if true, update changes of the source list are ignored since the listeners already
+   * handle the changed values, call {@link #rowChanged(int)} after the values changed if
+   * the predicate must test the row again
+   * </p>
+   * 
+   * @param valueListening
+   *          true or false
+   */
+  public final void setValueListening(boolean valueListening) {
+    this.valueListening.set(valueListening);
+  }
+
+  /**
+   * Notify that values of the source item at the source index changed, the source item will
+   * be filtered, sorted and summarized again. only required if not listening values and the
+   * source list can not fire update change, or listening values and the predicate result of
+   * the row may changed
+   * 
+   * @param sourceIndex
+   *          the source index
+   */
+  public void rowChanged(int sourceIndex) {
+    if (runningGeneration != null) {
+      runningGeneration.stale = true;
+      return;
+    }
+    beginChange();
+    try {
+      updateSourceItem(sourceIndex, getSource().get(sourceIndex), getPredicate());
+    } finally {
+      endChange();
+    }
+  }
+
+  private ReadOnlyBooleanWrapper regenerating =
+      new ReadOnlyBooleanWrapper(this, "regenerating");
+
+  /**
+   * regenerating property, true while background generation running
+   * 
+   * @return regenerating property
+   */
+  public final ReadOnlyBooleanProperty regeneratingProperty() {
+    return regenerating.getReadOnlyProperty();
+  }
+
+  /**
+   * Determine whether background generation running
+   * 
+   * @return true or false
+   */
+  public final boolean isRegenerating() {
+    return regenerating.get();
+  }
+
+  private Generation runningGeneration;
+
+  /**
+   * filter rows incrementally unless generating in background, if the new predicate narrowed
+   * the old (conjunction with more predicates), only visible rows tested by the added
+   * predicates, if widened, only hidden rows tested
+   */
+  private void handlePredicateChange(Predicate<S> oldPredicate, Predicate<S> newPredicate) {
+    if (isBackgroundGeneration() || runningGeneration != null) {
+      doRegeneration(true);
+      return;
+    }
+    List<Predicate<S>> oldTerms = termsOf(oldPredicate), newTerms = termsOf(newPredicate);
+    boolean narrowing = newTerms.containsAll(oldTerms);
+    boolean widening = oldTerms.containsAll(newTerms);
+    beginChange();
+    try {
+      if (!widening) {
+        List<Predicate<S>> terms = new ArrayList<>(newTerms);
+        if (narrowing) terms.removeAll(oldTerms);
+        removeFilteredOut(terms);
+      }
+      if (!narrowing) addFilteredIn(newPredicate);
+    } finally {
+      endChange();
+    }
+  }
+
+  // predicates of the predicate, the conjunction split into its predicates
+  private List<Predicate<S>> termsOf(Predicate<S> predicate) {
+    if (predicate == null) return Collections.emptyList();
+    if (predicate instanceof XSummaryConjunction)
+      return ((XSummaryConjunction<S>) predicate).getPredicates();
+    return Collections.singletonList(predicate);
+  }
+
+  // remove visible items not matched by all the predicates
+  private void removeFilteredOut(List<Predicate<S>> predicates) {
+    Predicate<S> predicate = new XSummaryConjunction<>(predicates);
+    boolean removed = false;
+    for (int i = 0; i < size; i++) {
+      SummaryItemImpl<S> item = items[i];
+      if (item.summary || predicate.test(item.sourceItem)) continue;
+      detachItem(item);
+      removed = true;
+    }
+    if (removed) compactItems();
+  }
+
+  // add hidden items matched by the predicate
+  private void addFilteredIn(Predicate<S> predicate) {
+    ObservableList<? extends S> source = getSource();
+    List<Integer> matched = new ArrayList<>();
+    sourceTree.forEachHidden(index -> {
+      if (predicate == null || predicate.test(source.get(index))) matched.add(index);
+    });
+    List<SummaryItemImpl<S>> added = new ArrayList<>();
+    for (int index : matched) {
+      SummaryItemImpl<S> item = new SummaryItemImpl<>(source.get(index));
+      item.node = sourceTree.insert(index, item);
+      addOrderSummerListeners(item);
+      added.add(item);
+    }
+    insertItems(added);
   }
 
   private void handleOrdersChange() {
     buildItemComparator();
     buildOrders();
-    doSortAndSummary();
+    buildSlots();
+    doRegeneration(false);
   }
 
   private void handleSummersChange() {
-    List<XSummarySummer<S, ?>> oldSummers = summers;
     buildSummers();
-    if (summers != null)
-      doSummaryOnly();
-    else if (oldSummers != null)
-      doRemoveSummary();
+    buildSlots();
+    doRegeneration(false);
   }
 
   private void handleTotalProduceChange() {
     buildTotalProduce();
-    doTotalSummary();
+    if (runningGeneration != null)
+      startGeneration();
+    else
+      doTotalSummary();
   }
 
   private void buildItemComparator() {
@@ -199,10 +444,14 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     summers = null;
     XSummaryComber<S> comber = getComber();
     if (comber == null) return;
-    List<XSummarySummer<S, ?>> list = comber.getSummers();
+    List<XSummaryAggregator<S, ?>> list = comber.getSummers();
     if (!XObjectUtils.isEmpty(list)) summers = list;
   }
 
+  private void buildSlots() {
+    slots = new Slots<>(orders, summers);
+  }
+
   private void buildTotalProduce() {
     totalProduce = false;
     XSummaryComber<S> comber = getComber();
@@ -210,21 +459,20 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     totalProduce = comber.isTotalProduce();
   }
 
+  private void doRegeneration(boolean full) {
+    if (isBackgroundGeneration())
+      startGeneration();
+    else if (full)
+      doFullGeneration();
+    else
+      doSortAndSummary();
+  }
+
   private void doFullGeneration() {
     ObservableList<? extends S> source = getSource();
-    Predicate<S> predicate = getPredicate();
-    beginChange();
-    try {
-      int count = source == null ? 0 : source.size();
-      resetItems(count);
-      for (int i = 0; i < count; i++) {
-        S item = source.get(i);
-        if (predicate == null || predicate.test(item))
-          addSourceItem(i, item);
-      }
-    } finally {
-      endChange();
-    }
+    Generation generation = new Generation();
+    generation.generate(source == null ? new Object[0] : source.toArray());
+    applyGeneration(generation);
   }
 
   private Predicate<S> getPredicate() {
@@ -234,74 +482,516 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
 
   private void doSortAndSummary() {
     if (size == 0) return;
-    SummaryItemImpl<S>[] temp = items;
-    int count = size;
+    SummaryItemImpl<S>[] details = newItemArray(size);
+    int detailCount = 0;
+    for (int i = 0; i < size; i++) {
+      if (!items[i].summary) details[detailCount++] = items[i];
+    }
+    Generation generation = new Generation();
+    generation.generate(details, detailCount);
+    applyGeneration(generation);
+  }
+
+  private int getParallelThreshold() {
+    XSummaryComber<S> comber = getComber();
+    return comber == null ? 0 : comber.getParallelThreshold();
+  }
+
+  // minimum rows of each fork/join chunk
+  private static final int PARALLEL_CHUNK = 4096;
+
+  /**
+   * run the task over chunks of the range, the chunks run in fork/join common pool if the
+   * range larger than the chunk size
+   */
+  private static void forEachChunk(int from, int to, int chunk, ChunkTask task) {
+    if (to - from <= chunk)
+      task.run(from, to);
+    else
+      ForkJoinPool.commonPool().invoke(new ChunkAction(from, to, chunk, task));
+  }
+
+  private static interface ChunkTask {
+    void run(int from, int to);
+  }
+
+  private static class ChunkAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int from, to, chunk;
+    private final ChunkTask task;
+
+    public ChunkAction(int from, int to, int chunk, ChunkTask task) {
+      this.from = from;
+      this.to = to;
+      this.chunk = chunk;
+      this.task = task;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= chunk) {
+        task.run(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new ChunkAction(from, middle, chunk, task),
+          new ChunkAction(middle, to, chunk, task));
+    }
+  }
+
+  private static final Comparator<SummaryItemImpl<?>> SOURCE_ORDER =
+      (o1, o2) -> Integer.compare(o1.getSourceIndex(), o2.getSourceIndex());
+
+  // unsorted items follow source order, and the total item (if any) is the last
+  private static final Comparator<SummaryItemImpl<?>> UNSORTED_ORDER = (o1, o2) -> {
+    if (o1.summary || o2.summary) return Boolean.compare(o1.summary, o2.summary);
+    return Integer.compare(o1.getSourceIndex(), o2.getSourceIndex());
+  };
+
+  // source changes of at least this many rows are merged into items in one pass
+  private static final int BULK_CHANGE = 64;
+
+  // replace all items with the generated items in one change, or permutate the items if
+  // the generated items are the current items in other order
+  private void applyGeneration(Generation generation) {
+    int[] permutation = matchGeneration(generation);
+    if (permutation != null) {
+      applyPermutation(generation, permutation);
+      return;
+    }
     beginChange();
     try {
-      resetItems(count);
-      for (int i = 0; i < count; i++) {
-        if (!temp[i].summary)
-          addSourceItem(temp[i].sourceIndex, temp[i].sourceItem);
+      resetItems();
+      if (generation.tree != null) sourceTree = generation.tree;
+      items = generation.items;
+      size = generation.size;
+      if (size > 0) nextAdd(0, size);
+      for (int i = 0; i < size; i++) {
+        items[i].position = i;
+        if (!items[i].summary)
+          addOrderSummerListeners(items[i]);
+        else if (items[i].subtotal)
+          subtotalIndex.put(items[i].groupKey, items[i]);
       }
+      validPositions = size;
     } finally {
       endChange();
     }
   }
 
-  private void resetItems(int capacity) {
+  /**
+   * match generated items to current items, details by identity and summaries by group and
+   * values
+   * 
+   * @return permutation from current positions to generated positions, or null if not all
+   *         generated items matched
+   */
+  private int[] matchGeneration(Generation generation) {
+    // details generated from source rows are always new items
+    if (size == 0 || generation.size != size || generation.tree != null) return null;
+    indexOfItem(items[size - 1]); // make positions valid
+    int[] permutation = new int[size];
+    boolean[] matched = new boolean[size];
     for (int i = 0; i < size; i++) {
-      nextRemove(i, items[i]);
-      if (!items[i].summary) removedOrderSummerListeners(items[i]);
+      SummaryItemImpl<S> item = generation.items[i];
+      if (item.summary) item = matchSummary(item, generation.slots);
+      if (item == null) return null;
+      int position = item.position;
+      if (position >= size || items[position] != item || matched[position]) return null;
+      matched[position] = true;
+      permutation[position] = i;
     }
-    size = 0;
-    items = null;
-    orderValueListeners.clear();
-    summerValueListeners.clear();
-    ensureSize(capacity);
+    return permutation;
   }
 
-  private void doSummaryOnly() {
-    if (size == 0) return;
+  // current summary with same group and values as the generated summary, null if none
+  private SummaryItemImpl<S> matchSummary(SummaryItemImpl<S> generated, Slots<S> slots) {
+    SummaryItemImpl<S> summary;
+    if (generated.subtotal)
+      summary = subtotalIndex.get(generated.groupKey);
+    else
+      summary = items[size - 1].summary && !items[size - 1].subtotal ? items[size - 1] : null;
+    if (summary == null || summary.summerCounter != generated.summerCounter) return null;
+    if (!Objects.equals(summary.slots.summers, slots.summers)) return null;
+    if (summary.subtotal) {
+      for (int k = 0; k < summary.groupKey.length; k++) {
+        if (summary.slots.orders.get(k) != slots.orders.get(k)) return null;
+      }
+    }
+    for (int k = 0; k < slots.summers.size(); k++) {
+      if (!Objects.equals(summaryValue(summary, k).getValue(),
+          summaryValue(generated, k).getValue()))
+        return null;
+    }
+    return summary;
+  }
+
+  // rearrange current items to generated positions in one permutation
+  private void applyPermutation(Generation generation, int[] permutation) {
     beginChange();
     try {
+      SummaryItemImpl<S>[] permutated = generation.items;
+      for (int i = 0; i < size; i++)
+        permutated[permutation[i]] = items[i];
+      items = permutated;
+      subtotalIndex.clear();
+      boolean moved = false;
       for (int i = 0; i < size; i++) {
-        if (items[i].summary) {
-          items[i].summerCounter = 0;
-          items[i].summerValues.clear();
+        SummaryItemImpl<S> item = items[i];
+        moved |= item.position != i;
+        item.position = i;
+        if (!item.summary) {
+          // orders or summers changed, listen to the new ones
+          if (item.slots != generation.slots) {
+            removedOrderSummerListeners(item);
+            addOrderSummerListeners(item);
+          } else if (isValueListening()) {
+            item.values = null;
+          }
+        } else {
+          item.slots = generation.slots;
+          if (item.subtotal) subtotalIndex.put(item.groupKey, item);
         }
       }
-      for (int i = 0; i < size; i++) {
-        if (!items[i].summary)
-          updateSummary(true, i, null, null);
-      }
+      validPositions = size;
+      if (moved) nextPermutation(0, size, permutation);
     } finally {
       endChange();
     }
   }
 
-  private void doRemoveSummary() {
-    beginChange();
-    try {
-      for (int i = size - 1; i >= 0; i--) {
-        if (items[i].summary) removeItem(i);
+  private void resetItems() {
+    if (size > 0) {
+      nextRemove(0, Arrays.asList(Arrays.copyOf(items, size)));
+      for (int i = 0; i < size; i++) {
+        if (!items[i].summary) removedOrderSummerListeners(items[i]);
       }
-    } finally {
-      endChange();
+    }
+    size = 0;
+    items = null;
+    validPositions = 0;
+    subtotalIndex.clear();
+  }
+
+  private static ExecutorService generationExecutor;
+
+  private static synchronized ExecutorService getGenerationExecutor() {
+    if (generationExecutor == null) {
+      generationExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "XSummaryList-generation");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return generationExecutor;
+  }
+
+  /**
+   * start background generation over a snapshot of the source, the running generation (if
+   * any) will be cancelled
+   */
+  private void startGeneration() {
+    if (runningGeneration != null) runningGeneration.cancelled = true;
+    ObservableList<? extends S> source = getSource();
+    Object[] rows = source == null ? new Object[0] : source.toArray();
+    Generation generation = new Generation();
+    runningGeneration = generation;
+    regenerating.set(true);
+    getGenerationExecutor().execute(() -> {
+      try {
+        generation.generate(rows);
+      } catch (CancellationException ex) {
+        return;
+      } catch (RuntimeException | Error ex) {
+        Platform.runLater(() -> {
+          if (runningGeneration == generation) stopGeneration();
+          throw ex;
+        });
+        return;
+      }
+      Platform.runLater(() -> finishGeneration(generation));
+    });
+  }
+
+  private void finishGeneration(Generation generation) {
+    if (runningGeneration != generation) return;
+    runningGeneration = null;
+    if (generation.isValuesChanged()) generation.stale = true;
+    applyGeneration(generation);
+    // source or values changed while generating, generate again to catch up
+    if (generation.stale)
+      startGeneration();
+    else
+      regenerating.set(false);
+  }
+
+  private void stopGeneration() {
+    if (runningGeneration != null) runningGeneration.cancelled = true;
+    runningGeneration = null;
+    regenerating.set(false);
+  }
+
+  /**
+   * generation of the whole list, the comber settings were taken when created, so it can run
+   * in background
+   */
+  private class Generation {
+    private final Predicate<S> predicate = getPredicate();
+    private final Slots<S> slots = XSummaryList.this.slots;
+    private final List<XSummaryOrder<S, ?>> orders = slots.orders;
+    private final List<XSummaryAggregator<S, ?>> summers = slots.summers;
+    private final ItemComparator<S> comparator =
+        orders == null ? null : new ItemComparator<>(orders);
+    private final boolean totalProduce = XSummaryList.this.totalProduce;
+    private final int orderCount = orders == null ? 0 : orders.size();
+    private final int summerCount = summers == null ? 0 : summers.size();
+    private final int parallelThreshold = getParallelThreshold();
+    private boolean parallel;
+    private XSourceIndexTree<SummaryItemImpl<S>> tree;
+    private SummaryItemImpl<S>[] items;
+    private int size;
+    private volatile boolean cancelled;
+    // source or values changed after generation started
+    private boolean stale;
+
+    private void checkCancelled() {
+      if (cancelled) throw new CancellationException();
+    }
+
+    /**
+     * generate from source rows, filtered by the predicate
+     */
+    @SuppressWarnings("unchecked")
+    public void generate(Object[] rows) {
+      parallel = parallelThreshold > 0 && rows.length >= parallelThreshold;
+      boolean[] passed = new boolean[rows.length];
+      if (predicate == null)
+        Arrays.fill(passed, true);
+      else if (parallel) {
+        forEachChunk(0, rows.length, PARALLEL_CHUNK, (from, to) -> {
+          for (int i = from; i < to; i++) {
+            checkCancelled();
+            passed[i] = predicate.test((S) rows[i]);
+          }
+        });
+      } else {
+        for (int i = 0; i < rows.length; i++) {
+          checkCancelled();
+          passed[i] = predicate.test((S) rows[i]);
+        }
+      }
+      tree = new XSourceIndexTree<>();
+      tree.clear(rows.length);
+      SummaryItemImpl<S>[] details = newItemArray(rows.length);
+      int count = 0;
+      for (int i = 0; i < rows.length; i++) {
+        if (!passed[i]) continue;
+        SummaryItemImpl<S> detail = new SummaryItemImpl<>((S) rows[i]);
+        detail.node = tree.insert(i, detail);
+        details[count++] = detail;
+      }
+      generate(details, count);
+    }
+
+    /**
+     * generate from detail items, the details will be sorted (stable, so equal items keep
+     * source order) and subtotals built in one pass over sorted details
+     */
+    public void generate(SummaryItemImpl<S>[] details, int count) {
+      parallel = parallelThreshold > 0 && count >= parallelThreshold;
+      readValues(details, count);
+      Comparator<? super SummaryItemImpl<S>> sorter = SOURCE_ORDER;
+      if (orderCount > 0) sorter = comparator;
+      // both are stable merge sort
+      if (parallel)
+        Arrays.parallelSort(details, 0, count, sorter);
+      else
+        Arrays.sort(details, 0, count, sorter);
+      checkCancelled();
+      if (summers == null) {
+        items = details;
+        size = count;
+      } else {
+        buildWithSummary(details, count);
+      }
+    }
+
+    // details sorted, so items of same group are adjacent, each subtotal closed (appended)
+    // when the group changed, deeper groups closed before outer groups
+    private void buildWithSummary(SummaryItemImpl<S>[] details, int count) {
+      List<XSummaryOrder<S, ?>> groups = new ArrayList<>();
+      if (orders != null) {
+        for (XSummaryOrder<S, ?> order : orders)
+          if (order.isSubtotalGroup()) groups.add(order);
+      }
+      List<Part> parts = splitParts(details, count, groups);
+      if (parts.size() == 1)
+        parts.get(0).build(details, groups);
+      else
+        forEachChunk(0, parts.size(), 1, (from, to) -> {
+          for (int p = from; p < to; p++)
+            parts.get(p).build(details, groups);
+        });
+      int length = 1;
+      for (Part part : parts)
+        length += part.size;
+      items = newItemArray(length);
+      SummaryItemImpl<S> total = null;
+      for (Part part : parts) {
+        System.arraycopy(part.items, 0, items, size, part.size);
+        size += part.size;
+        if (part.total == null) continue;
+        if (total == null) {
+          total = part.total;
+          continue;
+        }
+        total.summerCounter += part.total.summerCounter;
+        for (int k = 0; k < summerCount; k++)
+          summaryValue(total, k).merge(summaryValue(part.total, k));
+      }
+      if (total != null) items[size++] = total;
+    }
+
+    // split sorted details at outermost group changes, so no subtotal crosses parts
+    private List<Part> splitParts(SummaryItemImpl<S>[] details, int count,
+        List<XSummaryOrder<S, ?>> groups) {
+      List<Part> parts = new ArrayList<>();
+      int partCount = parallel ? ForkJoinPool.getCommonPoolParallelism() * 4 : 1;
+      int partSize = Math.max(PARALLEL_CHUNK, count / Math.max(partCount, 1) + 1);
+      int from = 0;
+      while (from < count) {
+        int to = Math.min(from + partSize, count);
+        while (to < count && !groups.isEmpty()
+            && !isGroupChanged(groups.get(0), details[to - 1].keys, details[to].keys))
+          to++;
+        parts.add(new Part(from, to));
+        from = to;
+      }
+      if (parts.isEmpty()) parts.add(new Part(0, 0));
+      return parts;
+    }
+
+    private boolean isGroupChanged(XSummaryOrder<S, ?> group, Object[] v1, Object[] v2) {
+      for (int k = 0; k < orderCount; k++) {
+        XSummaryOrder<S, ?> order = orders.get(k);
+        if (XSummaryUtils.compareValue(order, v1[k], v2[k]) != 0) return true;
+        if (order == group) break;
+      }
+      return false;
+    }
+
+    // part of sorted details, build items with subtotals and partial total of the part
+    private class Part {
+      private final int from, to;
+      private SummaryItemImpl<S>[] items;
+      private int size;
+      private SummaryItemImpl<S> total;
+
+      public Part(int from, int to) {
+        this.from = from;
+        this.to = to;
+      }
+
+      public void build(SummaryItemImpl<S>[] details, List<XSummaryOrder<S, ?>> groups) {
+        items = newItemArray((to - from) * 3 / 2 + 1);
+        SummaryItemImpl<S>[] opened = newItemArray(groups.size());
+        total = totalProduce && to > from ? newSummary(false, slots) : null;
+        for (int i = from; i < to; i++) {
+          checkCancelled();
+          Object[] keys = details[i].keys, values = details[i].values;
+          int changed = findChangedGroup(groups, opened, keys);
+          closeSubtotals(opened, changed);
+          appendItem(details[i]);
+          for (int g = 0; g < opened.length; g++) {
+            if (opened[g] == null) opened[g] = openSubtotal(groups.get(g), keys);
+            accumulateSummary(opened[g], true, summers, values);
+          }
+          if (total != null) accumulateSummary(total, true, summers, values);
+        }
+        closeSubtotals(opened, 0);
+      }
+
+      private void closeSubtotals(SummaryItemImpl<S>[] opened, int level) {
+        for (int g = opened.length - 1; g >= level; g--) {
+          if (opened[g] != null) appendItem(opened[g]);
+          opened[g] = null;
+        }
+      }
+
+      private void appendItem(SummaryItemImpl<S> item) {
+        if (size == items.length) items = Arrays.copyOf(items, size * 3 / 2 + 1);
+        items[size++] = item;
+      }
+    }
+
+    private int findChangedGroup(List<XSummaryOrder<S, ?>> groups,
+        SummaryItemImpl<S>[] opened, Object[] keys) {
+      for (int g = 0; g < opened.length; g++) {
+        if (opened[g] == null) return g;
+        XSummaryOrder<S, ?> group = groups.get(g);
+        for (int k = 0; k < orderCount; k++) {
+          XSummaryOrder<S, ?> order = orders.get(k);
+          ObservableValue<?> current = opened[g].orderValues[k];
+          int result = XSummaryUtils.compareValue(order, current.getValue(), keys[k]);
+          if (result != 0) return g;
+          if (order == group) break;
+        }
+      }
+      return opened.length;
+    }
+
+    private SummaryItemImpl<S> openSubtotal(XSummaryOrder<S, ?> group, Object[] keys) {
+      SummaryItemImpl<S> subtotal = newSubtotal(slots, keys, orders.indexOf(group) + 1);
+      initSummaryValues(subtotal, slots);
+      return subtotal;
+    }
+
+    // read sort keys and summer values of details once, they will not be read again
+    private void readValues(SummaryItemImpl<S>[] details, int count) {
+      if (orderCount + summerCount == 0) return;
+      forEachChunk(0, count, parallel ? PARALLEL_CHUNK : count, (from, to) -> {
+        for (int i = from; i < to; i++) {
+          checkCancelled();
+          S sourceItem = details[i].sourceItem;
+          details[i].keys = orderCount == 0 ? null
+              : XSummaryUtils.readKeys(orders, sourceItem, new Object[orderCount]);
+          details[i].values = summerCount == 0 ? null : XSummaryUtils.readSummerValues(
+              summers, sourceItem, new Object[summerCount]);
+        }
+      });
+    }
+
+    /**
+     * check whether values of the generated details changed after read, values read in
+     * background may be changed before listened
+     */
+    public boolean isValuesChanged() {
+      Object[] keys = new Object[orderCount], values = new Object[summerCount];
+      for (int i = 0; i < size; i++) {
+        if (items[i].summary) continue;
+        S sourceItem = items[i].sourceItem;
+        if (orderCount > 0 && !Arrays.equals(items[i].keys,
+            XSummaryUtils.readKeys(orders, sourceItem, keys)))
+          return true;
+        if (summerCount > 0 && !Arrays.equals(items[i].values,
+            XSummaryUtils.readSummerValues(summers, sourceItem, values)))
+          return true;
+      }
+      return false;
     }
   }
 
   private void doTotalSummary() {
     beginChange();
     try {
-      if (totalProduce) {
-        SummaryItemImpl<S> total = new SummaryItemImpl<>(false);
+      if (totalProduce && summers != null) {
+        SummaryItemImpl<S> total = newSummary(false, slots);
         for (int i = 0; i < size; i++) {
           if (!items[i].summary) {
-            Map<XSummarySummer<S, ?>, Object> differenceValues =
-                buildDifferenceValues(true, items[i].sourceItem);
-            updateSummary(total, 1, 0, differenceValues);
+            accumulateSummary(total, true, summers, summerValuesOf(items[i]));
           }
         }
+        if (total.summerCounter > 0) addItem(size, total);
       } else if (size > 0) {
         SummaryItemImpl<S> last = items[size - 1];
         if (last.summary && !last.subtotal) removeItem(size - 1);
@@ -313,15 +1003,21 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
 
   @Override
   protected void sourceChanged(Change<? extends S> c) {
+    if (runningGeneration != null) {
+      runningGeneration.stale = true;
+      return;
+    }
     beginChange();
     try {
       while (c.next()) {
-        if (c.wasUpdated() || c.wasReplaced())
+        if (c.wasPermutated())
+          handleSourcePermutated(c);
+        else if (c.wasUpdated())
           handleSourceUpdated(c);
-        else if (c.wasAdded())
-          handleSourceAdded(c);
-        else if (c.wasRemoved())
-          handleSourceRemoved(c);
+        else {
+          if (c.wasRemoved()) handleSourceRemoved(c);
+          if (c.wasAdded()) handleSourceAdded(c);
+        }
       }
     } finally {
       endChange();
@@ -329,60 +1025,283 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
   }
 
   private void handleSourceUpdated(Change<? extends S> c) {
+    // changed values handled by listeners, the row removed here would subtract the new
+    // summer values which the summaries not accumulated yet
+    if (isValueListening()) return;
     ObservableList<? extends S> list = c.getList();
-    for (int i = c.getFrom(); i < c.getTo(); i++) {
-      removeSourceItem(i);
-      addSourceItem(i, list.get(i));
+    Predicate<S> predicate = getPredicate();
+    for (int i = c.getFrom(); i < c.getTo(); i++)
+      updateSourceItem(i, list.get(i), predicate);
+  }
+
+  private void updateSourceItem(int sourceIndex, S item, Predicate<S> predicate) {
+    removeSourceItem(sourceIndex);
+    if (predicate == null || predicate.test(item))
+      addSourceItem(sourceIndex, item);
+  }
+
+  private void handleSourcePermutated(Change<? extends S> c) {
+    int from = c.getFrom(), to = c.getTo();
+    SummaryItemImpl<S>[] permutated = newItemArray(to - from);
+    for (int i = from; i < to; i++) {
+      SummaryItemImpl<S> item = sourceTree.get(i);
+      if (item == null) continue;
+      sourceTree.remove(item.node);
+      permutated[i - from] = item;
+    }
+    for (int i = from; i < to; i++) {
+      SummaryItemImpl<S> item = permutated[i - from];
+      if (item != null) item.node = sourceTree.insert(c.getPermutation(i), item);
     }
+    // sorted items not affected by source order, unsorted items follow source order
+    if (itemComparator == null) permutateUnsorted(from, to);
   }
 
+  // items of the permutated source range are adjacent, sort them again by source index
+  private void permutateUnsorted(int from, int to) {
+    int start = sourceTree.rank(from), end = sourceTree.rank(to);
+    if (end - start < 2) return;
+    indexOfItem(items[end - 1]);
+    Arrays.sort(items, start, end, SOURCE_ORDER);
+    int[] permutation = new int[end - start];
+    for (int i = start; i < end; i++) {
+      permutation[items[i].position - start] = i;
+      items[i].position = i;
+    }
+    nextPermutation(start, end, permutation);
+  }
+
+  /**
+   * Find the index of the item wrapped source item at the source index
+   * 
+   * @return index of the item or -1 if the source item filtered out
+   */
   private int findSourceItem(int sourceIndex) {
-    for (int i = 0; i < size; i++) {
-      if (items[i].sourceIndex == sourceIndex)
-        return i;
+    SummaryItemImpl<S> item = sourceTree.get(sourceIndex);
+    return item == null ? -1 : indexOfItem(item);
+  }
+
+  // item positions shifted by adding or removing are refreshed lazily
+  private int indexOfItem(SummaryItemImpl<S> item) {
+    if (item.position >= validPositions) {
+      for (int i = validPositions; i < size; i++)
+        items[i].position = i;
+      validPositions = size;
     }
-    return -1;
+    return item.position;
   }
 
   private void handleSourceAdded(Change<? extends S> c) {
     int sourceIndex = c.getFrom();
     int addedCount = c.getAddedSize();
-    updateIndices(sourceIndex, addedCount);
+    sourceTree.insertRows(sourceIndex, addedCount);
     List<? extends S> list = c.getAddedSubList();
+    Predicate<S> predicate = getPredicate();
+    if (addedCount >= BULK_CHANGE) {
+      addSourceItems(sourceIndex, list, predicate);
+      return;
+    }
     for (int i = 0; i < addedCount; i++) {
-      addSourceItem(sourceIndex + i, list.get(i));
+      S item = list.get(i);
+      if (predicate == null || predicate.test(item))
+        addSourceItem(sourceIndex + i, item);
     }
   }
 
   private void handleSourceRemoved(Change<? extends S> c) {
     int sourceIndex = c.getFrom();
     int removeCount = c.getRemovedSize();
-    for (int i = 0; i < removeCount; i++) {
-      removeSourceItem(sourceIndex + i);
+    if (removeCount >= BULK_CHANGE)
+      removeSourceItems(sourceIndex, removeCount);
+    else {
+      for (int i = 0; i < removeCount; i++) {
+        removeSourceItem(sourceIndex + i);
+      }
+    }
+    sourceTree.removeRows(sourceIndex, removeCount);
+  }
+
+  /**
+   * add source items in one pass, the added items and new summaries sorted and merged into
+   * items, each summary updated by accumulating without moving
+   */
+  private void addSourceItems(int sourceIndex, List<? extends S> list,
+      Predicate<S> predicate) {
+    List<SummaryItemImpl<S>> added = new ArrayList<>();
+    for (int i = 0; i < list.size(); i++) {
+      S sourceItem = list.get(i);
+      if (predicate != null && !predicate.test(sourceItem)) continue;
+      SummaryItemImpl<S> item = new SummaryItemImpl<>(sourceItem);
+      item.node = sourceTree.insert(sourceIndex + i, item);
+      addOrderSummerListeners(item);
+      added.add(item);
     }
-    updateIndices(sourceIndex, -removeCount);
+    insertItems(added);
+  }
+
+  // insert added detail items (sorted or not), new summaries inserted at same time
+  private void insertItems(List<SummaryItemImpl<S>> added) {
+    if (added.isEmpty()) return;
+    int count = added.size();
+    if (summers != null) {
+      SummaryItemImpl<S> total = null;
+      if (totalProduce) {
+        total = size == 0 ? null : items[size - 1];
+        if (total == null || !total.summary || total.subtotal)
+          added.add(total = newSummary(false, slots));
+      }
+      for (int i = 0; i < count; i++)
+        accumulateAdded(added.get(i), total, added);
+    }
+    SummaryItemImpl<S>[] incoming = added.toArray(newItemArray(added.size()));
+    Comparator<? super SummaryItemImpl<S>> comparator =
+        itemComparator != null ? itemComparator : UNSORTED_ORDER;
+    Arrays.sort(incoming, comparator);
+    mergeItems(incoming, comparator);
+  }
+
+  // accumulate the added item to total and subtotals, new subtotals appended to added
+  private void accumulateAdded(SummaryItemImpl<S> item, SummaryItemImpl<S> total,
+      List<SummaryItemImpl<S>> added) {
+    Object[] values = summerValuesOf(item);
+    if (total != null) accumulateSummary(total, true, summers, values);
+    if (orders == null) return;
+    Object[] groupValues = item.keys;
+    for (int k = 0; k < orders.size(); k++) {
+      if (!orders.get(k).isSubtotalGroup()) continue;
+      SummaryItemImpl<S> subtotal = subtotalIndex.get(probeKey.set(groupValues, k + 1));
+      if (subtotal == null) {
+        // group values equal by comparator but not by equals
+        probeSubtotal.groupKey = probeKey;
+        int index = findInsertPos(probeSubtotal) - 1;
+        if (index >= 0 && itemComparator.compare(probeSubtotal, items[index]) == 0)
+          subtotal = items[index];
+        else {
+          subtotal = newSubtotal(slots, groupValues, k + 1);
+          initSummaryValues(subtotal, slots);
+          subtotalIndex.put(subtotal.groupKey, subtotal);
+          added.add(subtotal);
+        }
+      }
+      accumulateSummary(subtotal, true, summers, values);
+    }
+  }
+
+  // merge sorted incoming items into items, each run of incoming items added as one change
+  private void mergeItems(SummaryItemImpl<S>[] incoming,
+      Comparator<? super SummaryItemImpl<S>> comparator) {
+    SummaryItemImpl<S>[] merged = newItemArray((size + incoming.length) * 3 / 2 + 1);
+    int i = 0, j = 0, n = 0;
+    validPositions = Math.min(validPositions, size);
+    while (j < incoming.length) {
+      if (i < size && comparator.compare(incoming[j], items[i]) >= 0) {
+        merged[n++] = items[i++];
+        continue;
+      }
+      int from = n;
+      validPositions = Math.min(validPositions, from);
+      while (j < incoming.length
+          && (i == size || comparator.compare(incoming[j], items[i]) < 0)) {
+        incoming[j].position = n;
+        merged[n++] = incoming[j++];
+      }
+      nextAdd(from, n);
+    }
+    System.arraycopy(items, i, merged, n, size - i);
+    items = merged;
+    size = n + size - i;
+  }
+
+  /**
+   * remove source items in one pass, each summary updated by accumulating and the removed
+   * items (and empty summaries) dropped from items together
+   */
+  private void removeSourceItems(int sourceIndex, int count) {
+    boolean removed = false;
+    for (int i = sourceIndex; i < sourceIndex + count; i++) {
+      SummaryItemImpl<S> item = sourceTree.get(i);
+      if (item == null) continue;
+      detachItem(item);
+      removed = true;
+    }
+    if (removed) compactItems();
+  }
+
+  // detach the removing item from summaries, listeners and source tree, the item left in
+  // items until compacted
+  private void detachItem(SummaryItemImpl<S> item) {
+    if (summers != null) accumulateRemoved(item);
+    removedOrderSummerListeners(item);
+    // removed item keep the last source index
+    item.sourceIndex = item.node.index();
+    sourceTree.remove(item.node);
+    item.node = null;
+  }
+
+  private void accumulateRemoved(SummaryItemImpl<S> item) {
+    int from = indexOfItem(item);
+    Object[] values = summerValuesOf(item);
+    if (totalProduce) {
+      int total = findTotalPos();
+      if (total >= 0) accumulateSummary(items[total], false, summers, values);
+    }
+    if (orders == null) return;
+    Object[] groupValues = item.keys;
+    for (int k = 0; k < orders.size(); k++) {
+      if (!orders.get(k).isSubtotalGroup()) continue;
+      int subtotal = findSubtotalPos(groupValues, k + 1, from);
+      if (subtotal >= 0) accumulateSummary(items[subtotal], false, summers, values);
+    }
+  }
+
+  // drop removed details and empty summaries, each run of dropped items removed as one change
+  private void compactItems() {
+    int i = 0, n = 0;
+    while (i < size) {
+      if (!isDropping(items[i])) {
+        items[n++] = items[i++];
+        continue;
+      }
+      validPositions = Math.min(validPositions, n);
+      List<SummaryItemImpl<S>> removed = new ArrayList<>();
+      while (i < size && isDropping(items[i])) {
+        if (items[i].subtotal) subtotalIndex.remove(items[i].groupKey, items[i]);
+        removed.add(items[i++]);
+      }
+      nextRemove(n, removed);
+    }
+    Arrays.fill(items, n, size, null);
+    size = n;
+  }
+
+  private boolean isDropping(SummaryItemImpl<S> item) {
+    return item.summary ? item.summerCounter == 0 : item.node == null;
   }
 
   private void addSourceItem(int sourceIndex, S sourceItem) {
-    SummaryItemImpl<S> unsorted = new SummaryItemImpl<>(sourceIndex, sourceItem);
+    SummaryItemImpl<S> unsorted = new SummaryItemImpl<>(sourceItem);
+    unsorted.node = sourceTree.insert(sourceIndex, unsorted);
+    addOrderSummerListeners(unsorted);
     int index = findInsertPos(unsorted);
     addItem(index, unsorted);
-    updateSummary(true, index, null, null);
+    updateSummary(true, index);
   }
 
   private int findInsertPos(SummaryItemImpl<S> item) {
     if (itemComparator != null) {
-      int pos;
-      for (pos = 0; pos < size; pos++) {
-        if (itemComparator.compare(item, items[pos]) < 0) break;
+      // binary search the first position greater than the item
+      int low = 0, high = size;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (itemComparator.compare(item, items[middle]) < 0)
+          high = middle;
+        else
+          low = middle + 1;
       }
-      return pos;
+      return low;
     } else {
-      int index = item.sourceIndex;
-      for (int i = 0; i < item.sourceIndex; i++) {
-        if (findSourceItem(i) == -1) index--;
-      }
-      return index;
+      // unsorted items follow source order, and the total item (if any) is the last
+      return sourceTree.rank(item.node.index());
     }
   }
 
@@ -391,138 +1310,198 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     System.arraycopy(items, index, items, index + 1, size - index);
     items[index] = unsorted;
     size++;
+    unsorted.position = index;
+    validPositions = Math.min(validPositions, index);
     nextAdd(index, index + 1);
-    if (!unsorted.summary) addOrderSummerListeners(index, unsorted);
   }
 
-  private void addOrderSummerListeners(int index, SummaryItemImpl<S> item) {
+  // listen order and summer values of the detail item, sort keys read from the values,
+  // summer values kept instead of listening if value listening disabled
+  private void addOrderSummerListeners(SummaryItemImpl<S> item) {
     S sourceItem = item.sourceItem;
-    if (orders != null) {
-      for (XSummaryOrder<S, ?> order : orders) {
+    boolean listening = isValueListening();
+    item.slots = slots;
+    item.values = null;
+    if (slots.orders != null) {
+      if (listening) item.orderListeners = newArray(OvlProxy.class, slots.orders.size());
+      if (item.keys == null || item.keys.length != slots.orders.size())
+        item.keys = new Object[slots.orders.size()];
+      for (int k = 0; k < slots.orders.size(); k++) {
+        XSummaryOrder<S, ?> order = slots.orders.get(k);
         ObservableValue<?> ov = order.getObservableValue(sourceItem);
-        if (ov == null) continue;
-        item.orderValues.put(order, ov);
-        ov.addListener(getOrderValueListener(item.sourceIndex, order));
+        item.keys[k] = ov == null ? null : ov.getValue();
+        if (ov == null || !listening) continue;
+        OvlProxy proxy = new OvlProxy(item, k, ov);
+        item.orderListeners[k] = proxy;
+        ov.addListener(proxy.listener);
       }
     }
-    if (summers != null) {
-      for (XSummarySummer<S, ?> summer : summers) {
-        ObservableValue<?> ov = summer.getObservableValue(sourceItem);
-        if (ov == null) return;
-        item.summerValues.put(summer, ov);
-        ov.addListener(getSummerValueListener(item.sourceIndex, summer));
+    if (slots.summers != null && !listening) {
+      item.values = new Object[slots.summers.size()];
+      XSummaryUtils.readSummerValues(slots.summers, sourceItem, item.values);
+    } else if (slots.summers != null) {
+      item.summerListeners = newArray(SvlProxy.class, slots.summers.size());
+      for (int k = 0; k < slots.summers.size(); k++) {
+        ObservableValue<?> ov = slots.summers.get(k).getObservableValue(sourceItem);
+        if (ov == null) continue;
+        SvlProxy proxy = new SvlProxy(item, k, ov);
+        item.summerListeners[k] = proxy;
+        ov.addListener(proxy.listener);
       }
     }
   }
 
-  @SuppressWarnings("unchecked")
   private void ensureSize(int size) {
-    if (items == null) items = new SummaryItemImpl[0];
+    if (items == null) items = newItemArray(0);
     if (items.length < size) {
-      SummaryItemImpl<S>[] replacement = new SummaryItemImpl[size * 3 / 2 + 1];
+      SummaryItemImpl<S>[] replacement = newItemArray(size * 3 / 2 + 1);
       System.arraycopy(items, 0, replacement, 0, this.size);
       items = replacement;
     }
   }
 
-  private void updateSummary(boolean add, int from,
-      Map<XSummaryOrder<S, ?>, Object> forcedOrderValues,
-      Map<XSummarySummer<S, ?>, Object> differenceValues) {
+  private SummaryItemImpl<S>[] newItemArray(int length) {
+    return newArray(SummaryItemImpl.class, length);
+  }
+
+  // generic array can not be created directly, for items and listener proxies
+  @SuppressWarnings("unchecked")
+  private static <T> T[] newArray(Class<?> type, int length) {
+    return (T[]) Array.newInstance(type, length);
+  }
+
+  // update summaries of the detail at from, the sort keys of detail are group values
+  private void updateSummary(boolean add, int from) {
     if (summers == null) return;
-    S sourceItem = items[from].sourceItem;
-    int count = 0;
-    if (differenceValues == null) {
-      count = add ? 1 : -1;
-      differenceValues = buildDifferenceValues(add, sourceItem);
-    }
+    Object[] values = summerValuesOf(items[from]);
     if (totalProduce) {
-      updateSummary(new SummaryItemImpl<>(false), count, from, differenceValues);
+      int index = findTotalPos();
+      updateSummary(index >= 0 ? items[index] : newSummary(false, slots), index, add, values);
     }
-    List<XSummaryOrder<S, ?>> groupKeys = new ArrayList<>();
     if (orders == null) return;
-    for (XSummaryOrder<S, ?> order : orders) {
-      groupKeys.add(order);
-      if (!order.isSubtotalGroup()) continue;
-      SummaryItemImpl<S> subtotal = new SummaryItemImpl<>(true);
-      for (XSummaryOrder<S, ?> group : groupKeys) {
-        Object value;
-        if (forcedOrderValues != null && forcedOrderValues.containsKey(group))
-          value = forcedOrderValues.get(group);
-        else {
-          ObservableValue<?> observable = group.getObservableValue(sourceItem);
-          value = observable == null ? null : observable.getValue();
-        }
-        subtotal.orderValues.put(group, new SimpleObjectProperty<>(value));
+    Object[] groupValues = items[from].keys;
+    for (int k = 0; k < orders.size(); k++) {
+      if (!orders.get(k).isSubtotalGroup()) continue;
+      int index = findSubtotalPos(groupValues, k + 1, from);
+      SummaryItemImpl<S> subtotal;
+      if (index >= 0)
+        subtotal = items[index];
+      else {
+        subtotal = newSubtotal(slots, groupValues, k + 1);
+        initSummaryValues(subtotal, slots);
       }
-      updateSummary(subtotal, count, from, differenceValues);
+      updateSummary(subtotal, index, add, values);
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private Map<XSummarySummer<S, ?>, Object> buildDifferenceValues(boolean add, S sourceItem) {
-    Map<XSummarySummer<S, ?>, Object> differenceValues = new HashMap<>();
-    for (XSummarySummer<S, ?> summer : summers) {
-      XSummarySummer<S, Object> s2 = (XSummarySummer<S, Object>) summer;
-      ObservableValue<Object> observable = s2.getObservableValue(sourceItem);
-      if (observable == null) continue;
-      Object value = observable.getValue();
-      if (add)
-        differenceValues.put(summer, s2.sum(null, value));
-      else
-        differenceValues.put(summer, s2.subtract(null, value));
-    }
-    return differenceValues;
+  /**
+   * find subtotal of the group values of the first length orders, the subtotal is after the
+   * detail item at the from position
+   * 
+   * @return position of the subtotal, or (-insert position) if not found
+   */
+  private int findSubtotalPos(Object[] groupValues, int length, int from) {
+    SummaryItemImpl<S> subtotal = subtotalIndex.get(probeKey.set(groupValues, length));
+    if (subtotal != null) return indexOfItem(subtotal);
+    // new group, or group values equal by comparator but not by equals
+    probeSubtotal.groupKey = probeKey;
+    return findSummaryPos(probeSubtotal, from + 1);
   }
 
-  @SuppressWarnings("unchecked")
-  private void updateSummary(SummaryItemImpl<S> summary, int count, int from,
-      Map<XSummarySummer<S, ?>, Object> differenceValues) {
-    int index = findSummaryPos(summary, from + 1);
-    if (index >= 0) summary = items[index];
-    summary.summerCounter += count;
-    if (summary.summerCounter == 0) {
+  // create subtotal item with the group values of the first length orders
+  private static <S> SummaryItemImpl<S> newSubtotal(Slots<S> slots, Object[] values,
+      int length) {
+    SummaryItemImpl<S> subtotal = new SummaryItemImpl<>(true);
+    subtotal.slots = slots;
+    subtotal.orderValues = new ObservableValue<?>[length];
+    for (int k = 0; k < length; k++)
+      subtotal.orderValues[k] = new SimpleObjectProperty<>(values[k]);
+    subtotal.groupKey = new GroupKey(Arrays.copyOf(values, length), length);
+    return subtotal;
+  }
+
+  // values of summers to accumulate, reused by every change to avoid allocation
+  private Object[] scratchValues() {
+    if (scratchValues == null || scratchValues.length < summers.size())
+      scratchValues = new Object[summers.size()];
+    return scratchValues;
+  }
+
+  // summer values of the detail item, the values kept if not listening, summaries were
+  // accumulated by the kept values even if the values changed after
+  private Object[] summerValuesOf(SummaryItemImpl<S> item) {
+    if (item.values != null) return item.values;
+    return XSummaryUtils.readSummerValues(summers, item.sourceItem, scratchValues());
+  }
+
+  // accumulate values to the summary at the index, add it if the index is negative
+  private void updateSummary(SummaryItemImpl<S> summary, int index, boolean add,
+      Object[] values) {
+    accumulateSummary(summary, add, summers, values);
+    if (summary.summerCounter == 0)
       removeItem(index);
-      return;
+    else if (index < 0) {
+      addItem(-index, summary);
+      if (summary.subtotal) subtotalIndex.put(summary.groupKey, summary);
     }
-    boolean updated = false;
-    for (XSummarySummer<S, ?> summer : differenceValues.keySet()) {
-      Object difference = differenceValues.get(summer);
-      SimpleObjectProperty<Object> current =
-          (SimpleObjectProperty<Object>) summary.summerValues.get(summer);
-      if (current != null) {
-        XSummarySummer<S, Object> s2 = (XSummarySummer<S, Object>) summer;
-        current.set(s2.sum(current.get(), difference));
-      } else {
-        updated = true;
-        summary.summerValues.put(summer, new SimpleObjectProperty<>(difference));
-      }
+  }
+
+  private static <S> SummaryItemImpl<S> newSummary(boolean subtotal, Slots<S> slots) {
+    SummaryItemImpl<S> summary = new SummaryItemImpl<>(subtotal);
+    initSummaryValues(summary, slots);
+    return summary;
+  }
+
+  // summary value of each summer was created along with the summary item
+  private static <S> void initSummaryValues(SummaryItemImpl<S> summary, Slots<S> slots) {
+    summary.slots = slots;
+    summary.summerValues = new SummaryValue<?, ?>[slots.summers.size()];
+    for (int k = 0; k < slots.summers.size(); k++)
+      summary.summerValues[k] = new SummaryValue<>(slots.summers.get(k).createAccumulator());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <S> SummaryValue<Object, Object> summaryValue(SummaryItemImpl<S> summary,
+      int k) {
+    return (SummaryValue<Object, Object>) summary.summerValues[k];
+  }
+
+  /**
+   * accumulate (add or remove) summer values of a detail item to the summary item
+   */
+  private static <S> void accumulateSummary(SummaryItemImpl<S> summary, boolean add,
+      List<XSummaryAggregator<S, ?>> summers, Object[] values) {
+    summary.summerCounter += add ? 1 : -1;
+    for (int k = 0; k < summers.size(); k++) {
+      Object value = values[k];
+      if (value == XSummaryUtils.NO_VALUE) continue;
+      if (add)
+        summaryValue(summary, k).add(value);
+      else
+        summaryValue(summary, k).remove(value);
     }
-    if (index < 0)
-      addItem(-index, summary);
-    else if (updated)
-      nextUpdate(index);
   }
 
-  private int findSummaryPos(SummaryItemImpl<S> summary, int from) {
-    SummaryItemImpl<S> last = items[size - 1];
-    int pos;
-    if (summary.isSubtotal()) {
-      for (pos = from; pos < size; pos++) {
-        int sort = itemComparator.compare(summary, items[pos]);
-        if (sort == 0) return pos;
-        if (sort < 0) return -pos;
-      }
-      return -size;
+  // position of the subtotal searched from the detail after, or (-insert position)
+  private int findSummaryPos(SummaryItemImpl<S> subtotal, int from) {
+    for (int pos = from; pos < size; pos++) {
+      int sort = itemComparator.compare(subtotal, items[pos]);
+      if (sort == 0) return pos;
+      if (sort < 0) return -pos;
     }
-    if (last != null && last.summary && !last.subtotal)
-      return size - 1;
     return -size;
   }
 
+  // position of the total, always the last item, or (-size) if no total
+  private int findTotalPos() {
+    SummaryItemImpl<S> last = size == 0 ? null : items[size - 1];
+    return last != null && last.summary && !last.subtotal ? size - 1 : -size;
+  }
+
   private void removeSourceItem(int sourceIndex) {
     int index = findSourceItem(sourceIndex);
     if (index >= 0) {
-      updateSummary(false, index, null, null);
+      updateSummary(false, index);
       removeItem(index);
     }
   }
@@ -531,206 +1510,321 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     SummaryItemImpl<S> removed = items[index];
     System.arraycopy(items, index + 1, items, index, size - index - 1);
     items[--size] = null;
+    validPositions = Math.min(validPositions, index);
     nextRemove(index, removed);
-    if (!removed.isSummary()) removedOrderSummerListeners(removed);
+    if (removed.subtotal) subtotalIndex.remove(removed.groupKey, removed);
+    if (!removed.isSummary()) {
+      removedOrderSummerListeners(removed);
+      // removed item keep the last source index
+      removed.sourceIndex = removed.node.index();
+      sourceTree.remove(removed.node);
+      removed.node = null;
+    }
   }
 
   private void removedOrderSummerListeners(SummaryItemImpl<S> removed) {
-    for (XSummaryOrder<S, ?> order : removed.orderValues.keySet()) {
-      ObservableValue<?> orderValue = removed.orderValues.get(order);
-      orderValue.removeListener(removeOrderValueListener(removed.sourceIndex, order));
+    if (removed.orderListeners != null) {
+      for (OvlProxy proxy : removed.orderListeners)
+        if (proxy != null) proxy.value.removeListener(proxy.listener);
     }
-    removed.orderValues.clear();
-    for (XSummarySummer<S, ?> summer : removed.summerValues.keySet()) {
-      ObservableValue<?> summerValue = removed.summerValues.get(summer);
-      summerValue.removeListener(removeSummerValueListener(removed.sourceIndex, summer));
+    removed.orderListeners = null;
+    if (removed.summerListeners != null) {
+      for (SvlProxy proxy : removed.summerListeners)
+        if (proxy != null) proxy.value.removeListener(proxy.listener);
     }
-    removed.summerValues.clear();
+    removed.summerListeners = null;
   }
 
-  private void updateIndices(int from, int difference) {
-    for (int i = 0; i < size; i++) {
-      if (items[i].sourceIndex >= from) items[i].sourceIndex += difference;
-    }
-    for (OvlProxy<S> proxy : orderValueListeners) {
-      if (proxy.sourceIndex >= from) proxy.sourceIndex += difference;
+  private void handleOrderValueChange(OvlProxy proxy, Object o, Object n) {
+    if (runningGeneration != null) {
+      runningGeneration.stale = true;
+      return;
     }
-    for (SvlProxy<S> proxy : summerValueListeners) {
-      if (proxy.sourceIndex >= from) proxy.sourceIndex += difference;
+    // item removed while the value notifying listeners, the proxy is stale
+    if (proxy.item.node == null) return;
+    beginChange();
+    try {
+      SummaryItemImpl<S> item = proxy.item;
+      boolean groupChanged = !Objects.equals(o, n) && isGroupOrder(proxy.slot);
+      // sort keys of the item still hold the old value
+      if (groupChanged) updateSummary(false, indexOfItem(item));
+      item.keys[proxy.slot] = n;
+      int index = relocateItem(indexOfItem(item), !groupChanged);
+      if (groupChanged) updateSummary(true, index);
+    } finally {
+      endChange();
     }
   }
 
-  private List<OvlProxy<S>> orderValueListeners = new ArrayList<>();
-
-  private WeakChangeListener<? super Object> getOrderValueListener(int sourceIndex,
-      XSummaryOrder<S, ?> order) {
-    int index = orderValueListeners.indexOf(new OvlProxy<>(sourceIndex, order));
-    final OvlProxy<S> proxy = index == -1 ? new OvlProxy<>(sourceIndex, order)
-        : orderValueListeners.get(index);
-    if (index == -1) {
-      orderValueListeners.add(proxy);
-      proxy.listener = new WeakChangeListener<>((v, o, n) -> handleOrderValueChange(proxy, o, n));
+  // whether the order at the slot is part of group values of any subtotal
+  private boolean isGroupOrder(int slot) {
+    for (int k = slot; k < orders.size(); k++) {
+      if (orders.get(k).isSubtotalGroup()) return true;
     }
-    return proxy.listener;
+    return false;
   }
 
-  private ChangeListener<? super Object> removeOrderValueListener(int sourceIndex,
-      XSummaryOrder<S, ?> order) {
-    int index = orderValueListeners.indexOf(new OvlProxy<>(sourceIndex, order));
-    return orderValueListeners.remove(index).listener;
+  /**
+   * move the item at index to the position decided by its sort keys, notify as permutation
+   * (or removal and addition while summaries changed too) if moved, or as update if not
+   * 
+   * @return new index of the item
+   */
+  private int relocateItem(int index, boolean permutate) {
+    SummaryItemImpl<S> item = items[index];
+    // binary search the first position greater than the item, excluding the item self
+    int low = 0, high = size - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      SummaryItemImpl<S> other = items[middle < index ? middle : middle + 1];
+      if (itemComparator.compare(item, other) < 0)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+    if (low == index) {
+      nextUpdate(index);
+      return index;
+    }
+    int from = Math.min(index, low), to = Math.max(index, low) + 1;
+    indexOfItem(items[to - 1]); // make positions in the range valid
+    if (low < index)
+      System.arraycopy(items, low, items, low + 1, index - low);
+    else
+      System.arraycopy(items, index + 1, items, index, low - index);
+    items[low] = item;
+    int[] permutation = new int[to - from];
+    for (int i = from; i < to; i++) {
+      permutation[items[i].position - from] = i;
+      items[i].position = i;
+    }
+    if (permutate) {
+      nextPermutation(from, to, permutation);
+    } else {
+      nextRemove(index, item);
+      nextAdd(low, low + 1);
+    }
+    return low;
   }
 
-  private void handleOrderValueChange(OvlProxy<S> proxy, Object o, Object n) {
-    beginChange();
-    try {
-      int index = findSourceItem(proxy.sourceIndex);
-      if (index >= 0) {
-        Map<XSummaryOrder<S, ?>, Object> forcedOrderValues = new HashMap<>();
-        forcedOrderValues.put(proxy.order, o);
-        updateSummary(false, index, forcedOrderValues, null);
-        SummaryItemImpl<S> item = items[index];
-        removeItem(index);
-        addSourceItem(item.sourceIndex, item.sourceItem);
-      }
-    } finally {
-      endChange();
+  private void handleSummerValueChange(SvlProxy proxy, Object o, Object n) {
+    if (runningGeneration != null) {
+      runningGeneration.stale = true;
+      return;
+    }
+    if (proxy.item.node == null) return;
+    int index = indexOfItem(proxy.item);
+    if (totalProduce) {
+      int total = findTotalPos();
+      if (total >= 0) summaryValue(items[total], proxy.slot).replace(o, n);
+    }
+    if (orders == null) return;
+    Object[] groupValues = proxy.item.keys;
+    for (int k = 0; k < orders.size(); k++) {
+      if (!orders.get(k).isSubtotalGroup()) continue;
+      int subtotal = findSubtotalPos(groupValues, k + 1, index);
+      if (subtotal >= 0) summaryValue(items[subtotal], proxy.slot).replace(o, n);
     }
   }
 
-  private List<SvlProxy<S>> summerValueListeners = new ArrayList<>();
+  // Order value listener proxy, held by the item, the value only holds a weak listener
+  private class OvlProxy implements ChangeListener<Object> {
+    private SummaryItemImpl<S> item;
+    // ordinal of the order
+    private int slot;
+    private ObservableValue<?> value;
+    private WeakChangeListener<Object> listener = new WeakChangeListener<>(this);
+
+    public OvlProxy(SummaryItemImpl<S> item, int slot, ObservableValue<?> value) {
+      this.item = item;
+      this.slot = slot;
+      this.value = value;
+    }
 
-  private WeakChangeListener<? super Object> getSummerValueListener(int sourceIndex,
-      XSummarySummer<S, ?> summer) {
-    int index = summerValueListeners.indexOf(new SvlProxy<>(sourceIndex, summer));
-    final SvlProxy<S> proxy = index == -1 ? new SvlProxy<>(sourceIndex, summer)
-        : summerValueListeners.get(index);
-    if (index == -1) {
-      summerValueListeners.add(proxy);
-      proxy.listener = new WeakChangeListener<>((v, o, n) -> handleSummerValueChange(proxy, o, n));
+    @Override
+    public void changed(ObservableValue<? extends Object> v, Object o, Object n) {
+      handleOrderValueChange(this, o, n);
     }
-    return proxy.listener;
   }
 
-  private ChangeListener<? super Object> removeSummerValueListener(int sourceIndex,
-      XSummarySummer<S, ?> summer) {
-    int index = summerValueListeners.indexOf(new SvlProxy<>(sourceIndex, summer));
-    return summerValueListeners.remove(index).listener;
-  }
+  // Summer value listener proxy, held by the item, the value only holds a weak listener
+  private class SvlProxy implements ChangeListener<Object> {
+    private SummaryItemImpl<S> item;
+    // ordinal of the summer
+    private int slot;
+    private ObservableValue<?> value;
+    private WeakChangeListener<Object> listener = new WeakChangeListener<>(this);
+
+    public SvlProxy(SummaryItemImpl<S> item, int slot, ObservableValue<?> value) {
+      this.item = item;
+      this.slot = slot;
+      this.value = value;
+    }
 
-  @SuppressWarnings("unchecked")
-  private void handleSummerValueChange(SvlProxy<S> proxy, Object o, Object n) {
-    XSummarySummer<S, Object> s2 = (XSummarySummer<S, Object>) proxy.summer;
-    Map<XSummarySummer<S, ?>, Object> differenceValues = new HashMap<>();
-    differenceValues.put(proxy.summer, s2.subtract(n, o));
-    int index = findSourceItem(proxy.sourceIndex);
-    updateSummary(true, index, null, differenceValues);
+    @Override
+    public void changed(ObservableValue<? extends Object> v, Object o, Object n) {
+      handleSummerValueChange(this, o, n);
+    }
   }
 
-  // Order value listener proxy
-  private static class OvlProxy<S> {
-    private int sourceIndex;
-    private XSummaryOrder<S, ?> order;
-    private WeakChangeListener<? super Object> listener;
+  /**
+   * comparator of items, details compare the sort keys read once, subtotals compare the group
+   * values
+   */
+  private static class ItemComparator<S> implements Comparator<SummaryItemImpl<S>> {
+    private List<XSummaryOrder<S, ?>> orders;
 
-    public OvlProxy(int sourceIndex, XSummaryOrder<S, ?> order) {
-      this.sourceIndex = sourceIndex;
-      this.order = order;
+    public ItemComparator(List<XSummaryOrder<S, ?>> orders) {
+      this.orders = orders;
     }
 
     @Override
-    public int hashCode() {
-      return Objects.hash(sourceIndex, order);
+    public int compare(SummaryItemImpl<S> o1, SummaryItemImpl<S> o2) {
+      for (int k = 0; k < orders.size(); k++) {
+        if (o1.summary && !o1.subtotal)
+          return 1;
+        if (o2.summary && !o2.subtotal)
+          return -1;
+        Object v1 = getComparingValue(k, o1);
+        Object v2 = getComparingValue(k, o2);
+        if (v1 == v2) continue;
+        if (o1.summary && v1 == null)
+          return 1;
+        if (o2.summary && v2 == null)
+          return -1;
+        int result = XSummaryUtils.compareValue(orders.get(k), v1, v2);
+        if (result != 0) return result;
+      }
+      if (o1.summary == o2.summary) return 0;
+      return o1.summary ? 1 : -1;
+    }
+
+    // subtotals compare the group values of the key, so probe subtotal needs no values
+    private Object getComparingValue(int k, SummaryItemImpl<S> item) {
+      if (!item.summary) return item.keys[k];
+      return k < item.groupKey.length ? item.groupKey.values[k] : null;
+    }
+  }
+
+  /**
+   * summer value of summary item, computed from the accumulator only when read
+   */
+  private static class SummaryValue<V, T> extends ObjectBinding<T> {
+    private final XSummaryAccumulator<V, T> accumulator;
+
+    public SummaryValue(XSummaryAccumulator<V, T> accumulator) {
+      this.accumulator = accumulator;
+    }
+
+    public void add(V value) {
+      accumulator.add(value);
+      invalidate();
+    }
+
+    public void remove(V value) {
+      accumulator.remove(value);
+      invalidate();
+    }
+
+    public void replace(V oldValue, V newValue) {
+      accumulator.remove(oldValue);
+      accumulator.add(newValue);
+      invalidate();
+    }
+
+    public void merge(SummaryValue<V, T> other) {
+      accumulator.merge(other.accumulator);
+      invalidate();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public boolean equals(Object obj) {
-      if (!(obj instanceof OvlProxy)) return false;
-      OvlProxy<S> test = (OvlProxy<S>) obj;
-      // use == to check order exactly equals
-      return sourceIndex == test.sourceIndex && order == test.order;
+    protected T computeValue() {
+      return accumulator.getValue();
     }
   }
 
-  // Summer value listener proxy
-  private static class SvlProxy<S> {
-    private int sourceIndex;
-    private XSummarySummer<S, ?> summer;
-    private WeakChangeListener<? super Object> listener;
+  /**
+   * group values of subtotal, the values must not be changed after put into map
+   */
+  private static class GroupKey {
+    private Object[] values;
+    private int length;
+    private int hash;
+
+    public GroupKey(Object[] values, int length) {
+      set(values, length);
+    }
 
-    public SvlProxy(int sourceIndex, XSummarySummer<S, ?> summer) {
-      this.sourceIndex = sourceIndex;
-      this.summer = summer;
+    public GroupKey set(Object[] values, int length) {
+      this.values = values;
+      this.length = length;
+      hash = length;
+      for (int k = 0; k < length; k++)
+        hash = 31 * hash + Objects.hashCode(values[k]);
+      return this;
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(sourceIndex, summer);
+      return hash;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public boolean equals(Object obj) {
-      if (!(obj instanceof SvlProxy)) return false;
-      SvlProxy<S> test = (SvlProxy<S>) obj;
-      // use == to check summer exactly equals
-      return sourceIndex == test.sourceIndex && summer == test.summer;
+      if (!(obj instanceof GroupKey)) return false;
+      GroupKey other = (GroupKey) obj;
+      if (hash != other.hash || length != other.length) return false;
+      for (int k = 0; k < length; k++) {
+        if (!Objects.equals(values[k], other.values[k])) return false;
+      }
+      return true;
     }
   }
 
-  private static class ItemComparator<S> implements Comparator<XSummaryItem<S>> {
-    private List<XSummaryOrder<S, ?>> orders;
+  /**
+   * ordinals of orders and summers of a comber configuration, items store values in arrays
+   * indexed by the ordinals
+   */
+  private static class Slots<S> {
+    private final List<XSummaryOrder<S, ?>> orders;
+    private final List<XSummaryAggregator<S, ?>> summers;
 
-    public ItemComparator(List<XSummaryOrder<S, ?>> orders) {
-      this.orders = orders;
+    public Slots(List<XSummaryOrder<S, ?>> orders, List<XSummaryAggregator<S, ?>> summers) {
+      this.orders = orders == null ? null : new ArrayList<>(orders);
+      this.summers = summers == null ? null : new ArrayList<>(summers);
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public int compare(XSummaryItem<S> o1, XSummaryItem<S> o2) {
-      for (XSummaryOrder<S, ?> order : orders) {
-        if (o1.isSummary() && !o1.isSubtotal())
-          return 1;
-        if (o2.isSummary() && !o2.isSubtotal())
-          return -1;
-        Object v1 = getComparingValue(order, o1);
-        Object v2 = getComparingValue(order, o2);
-        if (v1 == v2) continue;
-        if (o1.isSummary() && v1 == null)
-          return 1;
-        if (o2.isSummary() && v2 == null)
-          return -1;
-        Comparator<Object> comparator = (Comparator<Object>) order.getComparator();
-        int result;
-        if (order.getSortType() == SortType.ASCENDING)
-          result = comparator.compare(v1, v2);
-        else
-          result = comparator.compare(v2, v1);
-        if (result != 0) return result;
-      }
-      if (o1.isSummary() == o2.isSummary()) return 0;
-      return o1.isSummary() ? 1 : -1;
+    public int orderSlot(XSummaryOrder<S, ?> order) {
+      return orders == null ? -1 : orders.indexOf(order);
     }
 
-    private Object getComparingValue(XSummaryOrder<S, ?> order, XSummaryItem<S> item) {
-      ObservableValue<?> ov = item.isSummary()
-          ? item.getSummaryValue(order)
-          : order.getObservableValue(item.getSourceItem());
-      return ov == null ? null : ov.getValue();
+    public int summerSlot(XSummaryAggregator<S, ?> summer) {
+      return summers == null ? -1 : summers.indexOf(summer);
     }
   }
 
   private static class SummaryItemImpl<S> implements XSummaryItem<S> {
+    private int position;
+    private XSourceIndexTree.Node<SummaryItemImpl<S>> node;
     private int sourceIndex = -1;
     private S sourceItem;
     private boolean summary;
     private boolean subtotal;
     private int summerCounter;
-    private Map<XSummaryOrder<S, ?>, ObservableValue<?>> orderValues = new HashMap<>();
-    private Map<XSummarySummer<S, ?>, ObservableValue<?>> summerValues = new HashMap<>();
-
-    public SummaryItemImpl(int sourceIndex, S sourceItem) {
-      this.sourceIndex = sourceIndex;
+    private GroupKey groupKey;
+    // sort keys (order values) of detail, refreshed when order value changed
+    private Object[] keys;
+    // summer values read by generation
+    private Object[] values;
+    private Slots<S> slots;
+    // group values of subtotal and summer values of summary, indexed by ordinals
+    private ObservableValue<?>[] orderValues;
+    private SummaryValue<?, ?>[] summerValues;
+    // listeners of detail item, the listened values are held by the listeners
+    private XSummaryList<S>.OvlProxy[] orderListeners;
+    private XSummaryList<S>.SvlProxy[] summerListeners;
+
+    public SummaryItemImpl(S sourceItem) {
       this.sourceItem = sourceItem;
     }
 
@@ -741,7 +1835,7 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
 
     @Override
     public int getSourceIndex() {
-      return sourceIndex;
+      return node != null ? node.index() : sourceIndex;
     }
 
     @Override
@@ -762,13 +1856,28 @@ public class XSummaryList<S> extends TransformationList<XSummaryItem<S>, S> {
     @SuppressWarnings("unchecked")
     @Override
     public <T> ObservableValue<T> getSummaryValue(XSummaryOrder<S, T> order) {
-      return (ObservableValue<T>) orderValues.get(order);
+      int slot = slots == null ? -1 : slots.orderSlot(order);
+      if (slot < 0) return null;
+      if (summary)
+        return slot < orderValues.length ? (ObservableValue<T>) orderValues[slot] : null;
+      // no listener if value listening disabled
+      if (orderListeners == null) return order.getObservableValue(sourceItem);
+      XSummaryList<S>.OvlProxy proxy = orderListeners[slot];
+      return proxy == null ? null : (ObservableValue<T>) proxy.value;
     }
 
     @SuppressWarnings("unchecked")
     @Override
-    public <T> ObservableValue<T> getSummaryValue(XSummarySummer<S, T> summer) {
-      return (ObservableValue<T>) summerValues.get(summer);
+    public <T> ObservableValue<T> getSummaryValue(XSummaryAggregator<S, T> summer) {
+      int slot = slots == null ? -1 : slots.summerSlot(summer);
+      if (slot < 0) return null;
+      if (summary) return (ObservableValue<T>) summerValues[slot];
+      // value of detail item is summary value type only for summer
+      if (!(summer instanceof XSummarySummer)) return null;
+      if (summerListeners == null)
+        return ((XSummarySummer<S, T>) summer).getObservableValue(sourceItem);
+      XSummaryList<S>.SvlProxy proxy = summerListeners[slot];
+      return proxy == null ? null : (ObservableValue<T>) proxy.value;
     }
   }
 }
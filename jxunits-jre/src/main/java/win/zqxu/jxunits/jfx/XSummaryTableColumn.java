@@ -2,6 +2,7 @@ package win.zqxu.jxunits.jfx;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 import java.util.Comparator;
 import java.util.function.Predicate;
 
@@ -16,8 +17,15 @@ import javafx.beans.value.ObservableValue;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.util.Callback;
+import javafx.util.StringConverter;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAccumulator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryCountAccumulator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryDistinctCountAccumulator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryExtremeAccumulator;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummingAccumulator;
 
 /**
  * column for displaying and editing data in {@link XSummaryTableView}
@@ -205,43 +213,44 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
   }
 
   private XSummaryColumnSummer<S, T> DEFAULT_SUMMER = new XSummaryColumnSummer<>(this);
-  private ObjectProperty<XSummarySummer<S, T>> summer =
-      new SimpleObjectProperty<XSummarySummer<S, T>>(this, "summer", DEFAULT_SUMMER) {
+  private ObjectProperty<XSummaryAggregator<S, ?>> summer =
+      new SimpleObjectProperty<XSummaryAggregator<S, ?>>(this, "summer", DEFAULT_SUMMER) {
         @Override
-        public void set(XSummaryComber.XSummarySummer<S, T> newValue) {
+        public void set(XSummaryAggregator<S, ?> newValue) {
           super.set(newValue != null ? newValue : DEFAULT_SUMMER);
         };
       };
 
   /**
-   * summer property used to calculate items summary value, if set to null, then default
-   * summer will be used
+   * summer (or other aggregator) property used to calculate items summary value, if set to
+   * null, then default summer will be used
    * 
    * @return summer property
    */
-  public final ObjectProperty<XSummarySummer<S, T>> summerProperty() {
+  public final ObjectProperty<XSummaryAggregator<S, ?>> summerProperty() {
     return summer;
   }
 
   /**
-   * Get summer used to calculate items summary value, default is a
+   * Get summer (or other aggregator) used to calculate items summary value, default is a
    * {@link XSummaryColumnSummer}
    * 
    * @return the summer
    */
-  public final XSummarySummer<S, T> getSummer() {
+  public final XSummaryAggregator<S, ?> getSummer() {
     return summer.get();
   }
 
   /**
-   * Set summer used to calculate items summary value, if set to null, then default summer
-   * will be used
+   * Set summer (or other aggregator) used to calculate items summary value, if set to null,
+   * then default summer will be used
    * 
    * @param summer
    *          the summer
    * @see XSummaryTableColumn.XSummaryColumnSummer
+   * @see XSummaryTableColumn.XSummaryColumnAggregator
    */
-  public final void setSummer(XSummarySummer<S, T> summer) {
+  public final void setSummer(XSummaryAggregator<S, ?> summer) {
     this.summer.set(summer);
   }
 
@@ -254,14 +263,25 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
         if (item.isSummary()) {
           if (table.getSortOrder().contains(XSummaryTableColumn.this))
             return item.getSummaryValue(getOrder());
-          if (getSummer() != null) return item.getSummaryValue(getSummer());
-          return null;
+          return getSummaryValue(item, getSummer());
         }
         Callback<XSummaryDataFeatures<S, T>, ObservableValue<T>> svf = getSourceValueFactory();
         if (svf == null) return null;
         return svf.call(new XSummaryDataFeatures<>(table, this, item.getSourceItem()));
       };
 
+  /**
+   * summary value of the aggregator, value of count, distinct count or average aggregator
+   * is not type T, the cells of the column must be able to display it
+   */
+  @SuppressWarnings("unchecked")
+  private ObservableValue<T> getSummaryValue(XSummaryItem<S> item,
+      XSummaryAggregator<S, ?> summer) {
+    if (summer == null) return null;
+    ObservableValue<?> value = item.getSummaryValue(summer);
+    return (ObservableValue<T>) value;
+  }
+
   /**
    * value factory for get value of summary item
    * 
@@ -298,6 +318,80 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
     this.sourceValueFactory.set(sourceValueFactory);
   }
 
+  private ObjectProperty<StringConverter<T>> converter =
+      new SimpleObjectProperty<>(this, "converter");
+
+  /**
+   * converter property used to convert value to string while exporting
+   * 
+   * @return converter property
+   */
+  public final ObjectProperty<StringConverter<T>> converterProperty() {
+    return converter;
+  }
+
+  /**
+   * Get converter used to convert value to string while exporting, default is null
+   * 
+   * @return the converter
+   */
+  public final StringConverter<T> getConverter() {
+    return converter.get();
+  }
+
+  /**
+   * Set converter used to convert value to string while exporting, if set to null, the
+   * value converted by {@link String#valueOf(Object)}, the converter must be able to run
+   * out of JavaFX application thread
+   * 
+   * @param converter
+   *          the converter
+   * @see XSummaryExporter
+   */
+  public final void setConverter(StringConverter<T> converter) {
+    this.converter.set(converter);
+  }
+
+  /**
+   * Convert value to string follow this column
+   * 
+   * @param value
+   *          the value
+   * @return string of the value, empty string for null
+   */
+  public final String toString(T value) {
+    StringConverter<T> converter = getConverter();
+    if (converter != null) return converter.toString(value);
+    return value == null ? "" : String.valueOf(value);
+  }
+
+  /**
+   * Get text of the cell value of the item follow this column, converted by
+   * {@link #toString(Object)}, but the summary value of count, distinct count or average
+   * aggregator (not value of this column) converted by {@link String#valueOf(Object)}
+   * 
+   * @param item
+   *          the item of the table
+   * @return text of the cell value, empty string for null
+   */
+  @SuppressWarnings("unchecked")
+  public final String getCellText(XSummaryItem<S> item) {
+    ObservableValue<?> observable = getCellObservableValue(item);
+    Object value = observable == null ? null : observable.getValue();
+    if (item == null || !item.isSummary() || isColumnValued(getSummer()))
+      return toString((T) value);
+    TableView<XSummaryItem<S>> table = getTableView();
+    if (table != null && table.getSortOrder().contains(this)) return toString((T) value);
+    return value == null ? "" : String.valueOf(value);
+  }
+
+  // whether summary value of the aggregator is value of this column
+  private static boolean isColumnValued(XSummaryAggregator<?, ?> summer) {
+    if (summer instanceof XSummarySummer) return true;
+    return summer instanceof XSummaryColumnAggregator
+        && ((XSummaryColumnAggregator<?, ?, ?>) summer).isColumnValued();
+  }
+
   /**
    * Get observable value from source item follow this column
    * 
@@ -330,7 +424,7 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
     /**
      * Instantiates a XSummaryDataFeatures instance with the given properties set as
      * read-only values of this instance.
-     *
+     * 
      * @param tableView
      *          The TableView that this instance refers to.
      * @param tableColumn
@@ -433,6 +527,17 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
       return doSummer(summing, -1, value);
     }
 
+    /**
+     * Create number accumulator keep running total in primitive or exact cell, if
+     * {@link #doSummer(Object, int, Object)} was overridden by sub class, the accumulator
+     * sum and subtract values by this summer
+     */
+    @Override
+    public XSummaryAccumulator<T, T> createAccumulator() {
+      if (getClass() != XSummaryColumnSummer.class) return new XSummarySummingAccumulator<>(this);
+      return new XSummaryNumberAccumulator<>();
+    }
+
     @SuppressWarnings("unchecked")
     protected T doSummer(T summing, int sign, T value) {
       if (!(value instanceof Number)) return summing;
@@ -501,4 +606,359 @@ public class XSummaryTableColumn<S, T> extends TableColumn<XSummaryItem<S>, T> {
       return result.doubleValue() + operand.doubleValue();
     }
   }
+
+  /**
+   * Accumulator to sum numbers without boxing, the result type was decided by the first
+   * value added. the integer types were summed in long, float and double summed in double,
+   * BigInteger and BigDecimal summed exactly.
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryNumberAccumulator<T> implements XSummaryAccumulator<T, T> {
+    private static final int NONE = 0, INTEGER = 1, FLOATING = 2, BIG_INTEGER = 3,
+        BIG_DECIMAL = 4;
+    private Class<?> type;
+    private int kind = NONE;
+    private long longSum;
+    private double doubleSum;
+    private BigInteger bigIntegerSum;
+    private BigDecimal bigDecimalSum;
+
+    @Override
+    public void add(T value) {
+      accumulate(1, value);
+    }
+
+    @Override
+    public void remove(T value) {
+      accumulate(-1, value);
+    }
+
+    /**
+     * Merge sum of other accumulator, the sum converted to the type of this accumulator
+     * same as a value added
+     */
+    @Override
+    public void merge(XSummaryAccumulator<T, T> other) {
+      if (!(other instanceof XSummaryNumberAccumulator)) {
+        add(other.getValue());
+        return;
+      }
+      XSummaryNumberAccumulator<T> number = (XSummaryNumberAccumulator<T>) other;
+      if (number.kind == NONE) return;
+      if (kind == NONE) decideType(number.type);
+      switch (kind) {
+      case BIG_INTEGER:
+        bigIntegerSum = bigIntegerSum.add(number.toBigInteger());
+        break;
+      case BIG_DECIMAL:
+        bigDecimalSum = bigDecimalSum.add(number.toBigDecimal());
+        break;
+      default:
+        if (kind == INTEGER && number.kind == INTEGER) {
+          longSum += number.longSum;
+          doubleSum += number.doubleSum;
+        } else {
+          doubleSum += number.toDouble();
+        }
+      }
+    }
+
+    private BigInteger toBigInteger() {
+      if (kind == BIG_INTEGER) return bigIntegerSum;
+      if (kind == BIG_DECIMAL) return bigDecimalSum.toBigInteger();
+      return BigInteger.valueOf(longSum).add(BigInteger.valueOf((long) doubleSum));
+    }
+
+    private BigDecimal toBigDecimal() {
+      if (kind == BIG_DECIMAL) return bigDecimalSum;
+      if (kind == BIG_INTEGER) return new BigDecimal(bigIntegerSum);
+      return BigDecimal.valueOf(longSum).add(BigDecimal.valueOf(doubleSum));
+    }
+
+    private double toDouble() {
+      if (kind == BIG_INTEGER) return bigIntegerSum.doubleValue();
+      if (kind == BIG_DECIMAL) return bigDecimalSum.doubleValue();
+      return longSum + doubleSum;
+    }
+
+    private void accumulate(int sign, T value) {
+      if (!(value instanceof Number)) return;
+      if (kind == NONE && !decideType(value.getClass())) return;
+      Number number = (Number) value;
+      switch (kind) {
+      case BIG_INTEGER:
+        BigInteger bigInteger = number instanceof BigInteger ? (BigInteger) number
+            : BigInteger.valueOf(number.longValue());
+        bigIntegerSum = sign > 0 ? bigIntegerSum.add(bigInteger)
+            : bigIntegerSum.subtract(bigInteger);
+        break;
+      case BIG_DECIMAL:
+        BigDecimal bigDecimal = number instanceof BigDecimal ? (BigDecimal) number
+            : BigDecimal.valueOf(number.doubleValue());
+        bigDecimalSum = sign > 0 ? bigDecimalSum.add(bigDecimal)
+            : bigDecimalSum.subtract(bigDecimal);
+        break;
+      default:
+        // integer values into integer type column still summed in long
+        if (kind == INTEGER && isInteger(number.getClass()))
+          longSum += sign * number.longValue();
+        else
+          doubleSum += sign * number.doubleValue();
+      }
+    }
+
+    private boolean decideType(Class<?> type) {
+      if (isInteger(type))
+        kind = INTEGER;
+      else if (type == Float.class || type == Double.class)
+        kind = FLOATING;
+      else if (type == BigInteger.class) {
+        kind = BIG_INTEGER;
+        bigIntegerSum = BigInteger.ZERO;
+      } else if (type == BigDecimal.class) {
+        kind = BIG_DECIMAL;
+        bigDecimalSum = BigDecimal.ZERO;
+      } else
+        return false; // unsupported type
+      this.type = type;
+      return true;
+    }
+
+    private boolean isInteger(Class<?> type) {
+      return type == Byte.class || type == Short.class || type == Integer.class
+          || type == Long.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getValue() {
+      switch (kind) {
+      case NONE:
+        return null;
+      case BIG_INTEGER:
+        return (T) bigIntegerSum;
+      case BIG_DECIMAL:
+        return (T) bigDecimalSum;
+      case FLOATING:
+        if (type == Float.class) return (T) Float.valueOf((float) doubleSum);
+        return (T) Double.valueOf(doubleSum);
+      }
+      long summed = longSum + (long) doubleSum;
+      if (type == Byte.class)
+        return (T) Byte.valueOf((byte) summed);
+      if (type == Short.class)
+        return (T) Short.valueOf((short) summed);
+      if (type == Integer.class)
+        return (T) Integer.valueOf((int) summed);
+      return (T) Long.valueOf(summed);
+    }
+  }
+
+  /**
+   * Accumulator of average of numbers, the value is Double, or BigDecimal if the numbers are
+   * BigInteger or BigDecimal. null values were not counted
+   * 
+   * @author zqxu
+   */
+  public static class XSummaryAverageAccumulator<V>
+      implements XSummaryAccumulator<V, Number> {
+    private final XSummaryNumberAccumulator<V> sum = new XSummaryNumberAccumulator<>();
+    private long count;
+
+    @Override
+    public void add(V value) {
+      sum.add(value);
+      if (value instanceof Number && sum.kind != XSummaryNumberAccumulator.NONE) count++;
+    }
+
+    @Override
+    public void remove(V value) {
+      sum.remove(value);
+      if (value instanceof Number && sum.kind != XSummaryNumberAccumulator.NONE) count--;
+    }
+
+    @Override
+    public void merge(XSummaryAccumulator<V, Number> other) {
+      XSummaryAverageAccumulator<V> average = (XSummaryAverageAccumulator<V>) other;
+      sum.merge(average.sum);
+      count += average.count;
+    }
+
+    @Override
+    public Number getValue() {
+      if (count == 0) return null;
+      switch (sum.kind) {
+      case XSummaryNumberAccumulator.BIG_INTEGER:
+        return divide(new BigDecimal(sum.bigIntegerSum));
+      case XSummaryNumberAccumulator.BIG_DECIMAL:
+        return divide(sum.bigDecimalSum);
+      }
+      // not converted to the value type, so integer sum never overflow here
+      return Double.valueOf((sum.longSum + sum.doubleSum) / count);
+    }
+
+    private BigDecimal divide(BigDecimal summed) {
+      return summed.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+    }
+  }
+
+  /**
+   * Implemented aggregator class to calculate minimum, maximum, count, distinct count or
+   * average summary value of the column, use the static methods to create aggregator. the
+   * count and distinct count value is Long and the average value is Double (BigDecimal for
+   * BigInteger and BigDecimal column), the cells of the column must be able to display them
+   * 
+   * @author zqxu
+   * @param <S>
+   *          the item type
+   * @param <T>
+   *          the value type of the column
+   * @param <R>
+   *          the summary value type
+   */
+  public static abstract class XSummaryColumnAggregator<S, T, R>
+      implements XSummaryAggregator<S, R> {
+    protected final XSummaryTableColumn<S, T> column;
+    private final boolean columnValued;
+
+    /**
+     * Constructor
+     * 
+     * @param column
+     *          the column
+     * @param columnValued
+     *          whether the summary value is value of the column (type R is T)
+     */
+    public XSummaryColumnAggregator(XSummaryTableColumn<S, T> column,
+        boolean columnValued) {
+      this.column = column;
+      this.columnValued = columnValued;
+    }
+
+    /**
+     * Determine whether the summary value is value of the column, the value will be
+     * converted by the column converter if true
+     * 
+     * @return true if the summary value is value of the column
+     */
+    public final boolean isColumnValued() {
+      return columnValued;
+    }
+
+    @Override
+    public ObservableValue<T> getObservableValue(S item) {
+      return column.getSourceObservableValue(item);
+    }
+
+    @Override
+    public abstract XSummaryAccumulator<T, R> createAccumulator();
+
+    /**
+     * Create aggregator to calculate minimum value of the column, values compared by the
+     * column comparator
+     * 
+     * @param <S>
+     *          the item type
+     * @param <T>
+     *          the value type
+     * @param column
+     *          the column
+     * @return the aggregator
+     */
+    public static <S, T> XSummaryColumnAggregator<S, T, T> MIN(
+        XSummaryTableColumn<S, T> column) {
+      return new XSummaryColumnAggregator<S, T, T>(column, true) {
+        @Override
+        public XSummaryAccumulator<T, T> createAccumulator() {
+          return new XSummaryExtremeAccumulator<>(column.getComparator(), false);
+        }
+      };
+    }
+
+    /**
+     * Create aggregator to calculate maximum value of the column, values compared by the
+     * column comparator
+     * 
+     * @param <S>
+     *          the item type
+     * @param <T>
+     *          the value type
+     * @param column
+     *          the column
+     * @return the aggregator
+     */
+    public static <S, T> XSummaryColumnAggregator<S, T, T> MAX(
+        XSummaryTableColumn<S, T> column) {
+      return new XSummaryColumnAggregator<S, T, T>(column, true) {
+        @Override
+        public XSummaryAccumulator<T, T> createAccumulator() {
+          return new XSummaryExtremeAccumulator<>(column.getComparator(), true);
+        }
+      };
+    }
+
+    /**
+     * Create aggregator to count not null values of the column
+     * 
+     * @param <S>
+     *          the item type
+     * @param <T>
+     *          the value type
+     * @param column
+     *          the column
+     * @return the aggregator
+     */
+    public static <S, T> XSummaryColumnAggregator<S, T, Long> COUNT(
+        XSummaryTableColumn<S, T> column) {
+      return new XSummaryColumnAggregator<S, T, Long>(column, false) {
+        @Override
+        public XSummaryAccumulator<T, Long> createAccumulator() {
+          return new XSummaryCountAccumulator<>();
+        }
+      };
+    }
+
+    /**
+     * Create aggregator to count distinct not null values of the column
+     * 
+     * @param <S>
+     *          the item type
+     * @param <T>
+     *          the value type
+     * @param column
+     *          the column
+     * @return the aggregator
+     */
+    public static <S, T> XSummaryColumnAggregator<S, T, Long> DISTINCT_COUNT(
+        XSummaryTableColumn<S, T> column) {
+      return new XSummaryColumnAggregator<S, T, Long>(column, false) {
+        @Override
+        public XSummaryAccumulator<T, Long> createAccumulator() {
+          return new XSummaryDistinctCountAccumulator<>();
+        }
+      };
+    }
+
+    /**
+     * Create aggregator to calculate average of number values of the column
+     * 
+     * @param <S>
+     *          the item type
+     * @param <T>
+     *          the value type
+     * @param column
+     *          the column
+     * @return the aggregator
+     */
+    public static <S, T> XSummaryColumnAggregator<S, T, Number> AVERAGE(
+        XSummaryTableColumn<S, T> column) {
+      return new XSummaryColumnAggregator<S, T, Number>(column, false) {
+        @Override
+        public XSummaryAccumulator<T, Number> createAccumulator() {
+          return new XSummaryAverageAccumulator<>();
+        }
+      };
+    }
+  }
 }
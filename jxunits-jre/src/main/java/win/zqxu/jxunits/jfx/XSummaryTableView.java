@@ -1,16 +1,21 @@
 package win.zqxu.jxunits.jfx;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
-import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
@@ -18,17 +23,22 @@ import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+import javafx.css.PseudoClass;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TableView.TableViewSelectionModel;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryConjunction;
 import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
-import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
 
 /**
  * the XSummaryTableView designed to support automatic calculate and show sub-total and
  * summary rows.
  * <p>
  * the items should be {@link XSummaryList} type. usually set items like <b>setItems(new
- * XSummaryList&lt;&gt;(source))</b>
+ * XSummaryList&lt;&gt;(source))</b>, or {@link XSummaryWindowList} type for very large
+ * source
  * </p>
  * <p>
  * the comber property of <code>XSummaryList</code> was bound to internal comber in table,
@@ -52,7 +62,7 @@ import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
  * <li>{@link XSummaryTableColumn#setComparator(Comparator)}</li>
  * <li>{@link XSummaryTableColumn#setSubtotalGroup(boolean)}</li>
  * <li>{@link XSummaryTableColumn#setSummaryEnabled(boolean)}</li>
- * <li>{@link XSummaryTableColumn#setSummer(XSummaryComber.XSummarySummer)}</li>
+ * <li>{@link XSummaryTableColumn#setSummer(XSummaryComber.XSummaryAggregator)}</li>
  * <li>{@link #setTotalRowProduce(boolean)}</li>
  * </ul>
  * <p>
@@ -70,9 +80,16 @@ import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
  * {@link #endUpdateSummary()}
  * </p>
  * 
+ * <p>
+ * when the list regenerating in background (see
+ * {@link XSummaryList#setBackgroundGeneration(boolean)}), pseudo class 'regenerating' was
+ * applied to the table
+ * </p>
+ * 
  * @author zqxu
  */
 public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
+  private static final PseudoClass REGENERATING = PseudoClass.getPseudoClass("regenerating");
 
   public XSummaryTableView() {
     this(FXCollections.observableArrayList());
@@ -87,6 +104,8 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
     getColumns().addListener(columnsHandler);
     handleItemsChanged(null, getItems());
     itemsProperty().addListener((v, o, n) -> handleItemsChanged(o, n));
+    handleSelectionModelChanged(null, getSelectionModel());
+    selectionModelProperty().addListener((v, o, n) -> handleSelectionModelChanged(o, n));
   }
 
   /**
@@ -125,7 +144,7 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
    * 
    * @return unmodifiable summers
    */
-  public ObservableList<XSummarySummer<S, ?>> getUnmodifiableSummers() {
+  public ObservableList<XSummaryAggregator<S, ?>> getUnmodifiableSummers() {
     return FXCollections.unmodifiableObservableList(comber.get().getSummers());
   }
 
@@ -189,13 +208,10 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
     }
   }
 
-  @SuppressWarnings({"unchecked", "rawtypes"})
   private Predicate<S> buildComberPredicate() {
     if (predicates.isEmpty()) return null;
-    Predicate combine = predicates.get(0);
-    for (int i = 1; i < predicates.size(); i++)
-      combine = combine.and(predicates.get(i));
-    return (Predicate<S>) combine;
+    if (predicates.size() == 1) return predicates.get(0);
+    return new XSummaryConjunction<>(predicates);
   }
 
   private List<XSummaryOrder<S, ?>> buildComberOrders() {
@@ -207,8 +223,8 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
     return orders;
   }
 
-  private List<XSummarySummer<S, ?>> buildComberSummers() {
-    List<XSummarySummer<S, ?>> summers = new ArrayList<>();
+  private List<XSummaryAggregator<S, ?>> buildComberSummers() {
+    List<XSummaryAggregator<S, ?>> summers = new ArrayList<>();
     for (TableColumn<XSummaryItem<S>, ?> column : getLeafColumns()) {
       if (column instanceof XSummaryTableColumn) {
         XSummaryTableColumn<S, ?> xc = (XSummaryTableColumn<S, ?>) column;
@@ -297,7 +313,7 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
   private Map<Object, ChangeListener<Predicate<S>>> columnPredicateHandlers = new HashMap<>();
   private Map<Object, ChangeListener<XSummaryOrder<S, ?>>> columnOrderHandlers = new HashMap<>();
   private Map<Object, ChangeListener<Boolean>> columnSummaryHandlers = new HashMap<>();
-  private Map<Object, ChangeListener<XSummarySummer<S, ?>>> columnSummerHandlers = new HashMap<>();
+  private Map<Object, ChangeListener<XSummaryAggregator<S, ?>>> columnSummerHandlers = new HashMap<>();
 
   private ChangeListener<Predicate<S>> getColumnPredicateHandler(Object column) {
     if (!columnPredicateHandlers.containsKey(column)) {
@@ -333,7 +349,7 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
     return columnSummaryHandlers.get(column);
   }
 
-  private ChangeListener<XSummarySummer<S, ?>> getColumnSummerHandler(Object column) {
+  private ChangeListener<XSummaryAggregator<S, ?>> getColumnSummerHandler(Object column) {
     if (!columnSummerHandlers.containsKey(column)) {
       columnSummerHandlers.put(column, (v, o, n) -> {
         if (updateLocker == 0)
@@ -343,36 +359,164 @@ public class XSummaryTableView<S> extends TableView<XSummaryItem<S>> {
     return columnSummerHandlers.get(column);
   }
 
+  private ReadOnlyBooleanWrapper regenerating =
+      new ReadOnlyBooleanWrapper(this, "regenerating") {
+        @Override
+        protected void invalidated() {
+          pseudoClassStateChanged(REGENERATING, get());
+        }
+      };
+
+  /**
+   * regenerating property, follow the regenerating property of the summary list
+   * 
+   * @return regenerating property
+   */
+  public final ReadOnlyBooleanProperty regeneratingProperty() {
+    return regenerating.getReadOnlyProperty();
+  }
+
+  /**
+   * Determine whether the summary list regenerating in background
+   * 
+   * @return true or false
+   */
+  public final boolean isRegenerating() {
+    return regenerating.get();
+  }
+
+  /**
+   * Create exporter with snapshot of visible summary columns and items, must be called in
+   * JavaFX application thread, the export can run in any thread
+   * 
+   * @param separator
+   *          the separator, {@link XSummaryExporter#CSV} or {@link XSummaryExporter#TSV}
+   * @return the exporter
+   */
+  public XSummaryExporter<S> createExporter(char separator) {
+    return new XSummaryExporter<>(this, separator);
+  }
+
   private void handleItemsChanged(ObservableList<XSummaryItem<S>> o,
       ObservableList<XSummaryItem<S>> n) {
+    if (o != null) o.removeListener(summaryItemsChangingHandler);
     if (o != null) o.removeListener(summaryItemsChangedHandler);
     if (o instanceof XSummaryList)
       ((XSummaryList<S>) o).comberProperty().unbind();
-    if (n instanceof XSummaryList)
+    if (o instanceof XSummaryWindowList)
+      ((XSummaryWindowList<S>) o).comberProperty().unbind();
+    regenerating.unbind();
+    regenerating.set(false);
+    if (n instanceof XSummaryList) {
       ((XSummaryList<S>) n).comberProperty().bind(comber);
+      regenerating.bind(((XSummaryList<S>) n).regeneratingProperty());
+    }
+    if (n instanceof XSummaryWindowList)
+      ((XSummaryWindowList<S>) n).comberProperty().bind(comber);
+    // invalidation listeners are notified before the change listener of selection model
+    if (n != null) n.addListener(summaryItemsChangingHandler);
     if (n != null) n.addListener(summaryItemsChangedHandler);
+    itemsChanging = false;
+    recordSelection();
   }
 
+  // selected detail items recorded out of items change, the selected item is the last
+  private List<XSummaryItem<S>> selection = Collections.emptyList();
+  // the items changed but the change not handled yet
+  private boolean itemsChanging;
+  private InvalidationListener summaryItemsChangingHandler = v -> itemsChanging = true;
   private ListChangeListener<XSummaryItem<S>> summaryItemsChangedHandler =
       c -> handleSummaryItemsChanged(c);
+  private InvalidationListener selectionHandler = v -> {
+    if (!itemsChanging) recordSelection();
+  };
+
+  private void handleSelectionModelChanged(TableViewSelectionModel<XSummaryItem<S>> o,
+      TableViewSelectionModel<XSummaryItem<S>> n) {
+    if (o != null) o.getSelectedIndices().removeListener(selectionHandler);
+    if (n != null) n.getSelectedIndices().addListener(selectionHandler);
+    recordSelection();
+  }
+
+  private void recordSelection() {
+    TableViewSelectionModel<XSummaryItem<S>> model = getSelectionModel();
+    if (model == null || model.isEmpty()) {
+      selection = Collections.emptyList();
+      return;
+    }
+    XSummaryItem<S> selected = model.getSelectedItem();
+    List<XSummaryItem<S>> list = new ArrayList<>();
+    for (XSummaryItem<S> item : model.getSelectedItems()) {
+      if (item != null && item != selected && !item.isSummary()) list.add(item);
+    }
+    if (selected != null && !selected.isSummary()) list.add(selected);
+    selection = list;
+  }
 
+  /**
+   * the selection model had adjusted selection for each sub change, restore the selection
+   * recorded before the change once by source item of the selected items
+   */
   private void handleSummaryItemsChanged(Change<? extends XSummaryItem<S>> c) {
-    XSummaryItem<S> selected = getSelectionModel().getSelectedItem();
-    if (selected == null) return;
-    int index = -1, sourceIndex = selected.getSourceIndex();
-    while (c.next()) {
-      if (c.wasAdded()) {
-        List<? extends XSummaryItem<S>> list = c.getAddedSubList();
-        for (int i = 0; i < list.size(); i++) {
-          if (list.get(i).getSourceIndex() == sourceIndex) {
-            index = c.getFrom() + i;
-            break;
-          }
-        }
+    itemsChanging = false;
+    TableViewSelectionModel<XSummaryItem<S>> model = getSelectionModel();
+    if (model == null || selection.isEmpty()) return;
+    ObservableList<XSummaryItem<S>> items = getItems();
+    List<?> source = items instanceof TransformationList
+        ? ((TransformationList<?, ?>) items).getSource() : Collections.emptyList();
+    Map<Object, Integer> sourceIndexes = null;
+    int[] indexes = new int[selection.size()];
+    int count = 0;
+    for (XSummaryItem<S> item : selection) {
+      // the source index of removed or regenerated item not updated, so use it only if the
+      // source item still there, otherwise find the source item by index of the source
+      int sourceIndex = item.getSourceIndex();
+      if (sourceIndex < 0 || sourceIndex >= source.size()
+          || source.get(sourceIndex) != item.getSourceItem()) {
+        if (sourceIndexes == null) sourceIndexes = indexSource(source);
+        Integer found = sourceIndexes.get(item.getSourceItem());
+        sourceIndex = found == null ? -1 : found;
       }
+      int index = getViewIndex(sourceIndex);
+      if (index != -1) indexes[count++] = index;
+    }
+    if (count > 0 && !isSelected(model, indexes, count)) {
+      model.clearSelection();
+      model.selectIndices(indexes[0], Arrays.copyOfRange(indexes, 1, count));
+    }
+    recordSelection();
+  }
+
+  // first source index of every source item, built once for all stale selected items
+  private static Map<Object, Integer> indexSource(List<?> source) {
+    Map<Object, Integer> sourceIndexes = new IdentityHashMap<>(source.size());
+    for (int i = 0; i < source.size(); i++)
+      sourceIndexes.putIfAbsent(source.get(i), i);
+    return sourceIndexes;
+  }
+
+  private int getViewIndex(int sourceIndex) {
+    if (sourceIndex < 0) return -1;
+    ObservableList<XSummaryItem<S>> items = getItems();
+    if (items instanceof XSummaryList)
+      return ((XSummaryList<S>) items).getViewIndex(sourceIndex);
+    if (items instanceof XSummaryWindowList)
+      return ((XSummaryWindowList<S>) items).getViewIndex(sourceIndex);
+    return -1;
+  }
+
+  // whether exactly the indexes selected, and the last one is the selected index
+  private boolean isSelected(TableViewSelectionModel<XSummaryItem<S>> model, int[] indexes,
+      int count) {
+    if (model.getSelectedIndex() != indexes[count - 1]) return false;
+    BitSet selected = new BitSet();
+    for (int i = 0; i < count; i++)
+      selected.set(indexes[i]);
+    if (selected.cardinality() != model.getSelectedIndices().size()) return false;
+    for (int index : model.getSelectedIndices()) {
+      if (!selected.get(index)) return false;
     }
-    final int restore = index;
-    if (restore != -1) Platform.runLater(() -> getSelectionModel().select(restore));
+    return true;
   }
 
   @Override
@@ -0,0 +1,109 @@
+package win.zqxu.jxunits.jfx;
+
+import java.util.Comparator;
+import java.util.List;
+
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn.SortType;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
+
+/**
+ * comber utilities shared by {@link XSummaryList} and {@link XSummaryWindowList}, read
+ * sort keys and summer values of source items, and compare values by the orders
+ * 
+ * @author zqxu
+ */
+class XSummaryUtils {
+  /**
+   * value read from a summer without observable value, not accumulated
+   */
+  public static final Object NO_VALUE = new Object();
+
+  private XSummaryUtils() {
+  }
+
+  /**
+   * Read order values of the source item into keys
+   * 
+   * @param orders
+   *          the orders
+   * @param sourceItem
+   *          the source item
+   * @param keys
+   *          array to hold the values, at least orders size
+   * @return the keys
+   */
+  public static <S> Object[] readKeys(List<XSummaryOrder<S, ?>> orders, S sourceItem,
+      Object[] keys) {
+    for (int k = 0; k < orders.size(); k++) {
+      ObservableValue<?> observable = orders.get(k).getObservableValue(sourceItem);
+      keys[k] = observable == null ? null : observable.getValue();
+    }
+    return keys;
+  }
+
+  /**
+   * Read summer values of the source item into values, {@link #NO_VALUE} if no observable
+   * value
+   * 
+   * @param summers
+   *          the summers
+   * @param sourceItem
+   *          the source item
+   * @param values
+   *          array to hold the values, at least summers size
+   * @return the values
+   */
+  public static <S> Object[] readSummerValues(List<XSummaryAggregator<S, ?>> summers,
+      S sourceItem, Object[] values) {
+    for (int k = 0; k < summers.size(); k++) {
+      ObservableValue<?> observable = summers.get(k).getObservableValue(sourceItem);
+      values[k] = observable == null ? NO_VALUE : observable.getValue();
+    }
+    return values;
+  }
+
+  /**
+   * Compare values by comparator and sort type of the order
+   * 
+   * @param order
+   *          the order
+   * @param v1
+   *          the first value
+   * @param v2
+   *          the second value
+   * @return compare result
+   */
+  @SuppressWarnings("unchecked")
+  public static int compareValue(XSummaryOrder<?, ?> order, Object v1, Object v2) {
+    if (v1 == v2) return 0;
+    Comparator<Object> comparator = (Comparator<Object>) order.getComparator();
+    if (order.getSortType() == SortType.ASCENDING)
+      return comparator.compare(v1, v2);
+    else
+      return comparator.compare(v2, v1);
+  }
+
+  /**
+   * Compare keys by the first length orders
+   * 
+   * @param orders
+   *          the orders
+   * @param k1
+   *          the first keys
+   * @param k2
+   *          the second keys
+   * @param length
+   *          count of orders to compare
+   * @return compare result
+   */
+  public static <S> int compareKeys(List<XSummaryOrder<S, ?>> orders, Object[] k1,
+      Object[] k2, int length) {
+    for (int k = 0; k < length; k++) {
+      int result = compareValue(orders.get(k), k1[k], k2[k]);
+      if (result != 0) return result;
+    }
+    return 0;
+  }
+}
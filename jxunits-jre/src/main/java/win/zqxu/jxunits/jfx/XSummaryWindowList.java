@@ -0,0 +1,1129 @@
+package win.zqxu.jxunits.jfx;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ObjectPropertyBase;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
+import javafx.collections.ListChangeListener.Change;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAccumulator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryAggregator;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummaryOrder;
+import win.zqxu.jxunits.jfx.XSummaryComber.XSummarySummer;
+
+/**
+ * summary list for very large source, same as {@link XSummaryList} but the detail rows
+ * were not materialized.
+ * 
+ * <p>
+ * the list generated in one pass over the source, the sort keys read column by column and
+ * dropped after sorting. only the source index of each filtered row kept in row order
+ * (nothing kept if neither filtered nor sorted), and the subtotal and total rows with the
+ * range of their detail rows. the detail item (and listeners to its order and summer
+ * values) was created when the row requested, usually by visible rows of the table, at
+ * most {@link #getWindowSize()} detail items kept, the least recently requested item
+ * evicted
+ * </p>
+ * 
+ * <p>
+ * changes of the source and the row values were applied row by row, each costs a pass over
+ * the kept source indexes and O(log n) reads of sort keys, and the summaries of the row
+ * accumulated by the old and new summer values. values of the evicted rows are not
+ * listened, their changes must be fired by the source list as update change (source list
+ * created with extractor) or notified by {@link #rowChanged(int)}, the old values unknown,
+ * so the summaries of the row computed again from the subtotals of inner group, or from
+ * the rows if no inner group. changes of the predicate, orders and summers, and
+ * permutation, multiple or large changes of the source regenerate the whole list in one
+ * change
+ * </p>
+ * 
+ * @author zqxu
+ */
+public class XSummaryWindowList<S> extends TransformationList<XSummaryItem<S>, S> {
+  // source changes of more rows regenerate the whole list
+  private static final int BULK_CHANGE = 64;
+  private Predicate<S> predicate;
+  private List<XSummaryOrder<S, ?>> orders = Collections.emptyList();
+  private List<XSummaryAggregator<S, ?>> summers = Collections.emptyList();
+  // count of group values of each subtotal group, the outer group first
+  private int[] groupLengths = new int[0];
+  private boolean totalProduce;
+  // source index of each detail row in row order, null if all source rows in source order
+  private int[] details;
+  private int count;
+  // subtotal and total rows in row order
+  private List<WindowSummary> summaries = new ArrayList<>();
+  // sort keys of the detail row compared with, reused by every comparing
+  private Object[] rowKeys = new Object[0];
+  // materialized detail items by source index, in access order
+  private Map<Integer, WindowItem> window = newWindow();
+
+  public XSummaryWindowList(ObservableList<S> source) {
+    super(source);
+    setComber(new XSummaryComber<>());
+  }
+
+  /**
+   * Get source index for the index, returns -1 if there is a summary row at the index
+   */
+  @Override
+  public int getSourceIndex(int index) {
+    checkIndex(index);
+    int found = findSummary(summaries, index);
+    return found >= 0 ? -1 : sourceIndexOf(details, index + found + 1);
+  }
+
+  /**
+   * Get index of the row of the source item at the source index, returns -1 if the source
+   * item filtered out or the source index out of range. not annotated with override since
+   * the method only declared by TransformationList of JavaFX 9 or later
+   * 
+   * @param sourceIndex
+   *          the source index
+   * @return index of the row or -1
+   */
+  public int getViewIndex(int sourceIndex) {
+    if (sourceIndex < 0 || sourceIndex >= getSource().size()) return -1;
+    int position;
+    if (details == null || orders.isEmpty()) {
+      position = scanDetail(sourceIndex);
+    } else {
+      S sourceItem = getSource().get(sourceIndex);
+      if (!test(sourceItem)) return -1;
+      position = insertPosition(sourceIndex, readKeys(sourceItem));
+      // values changed without notification
+      if (position >= count || details[position] != sourceIndex)
+        position = scanDetail(sourceIndex);
+    }
+    return position < 0 ? -1 : position + countSummaries(position);
+  }
+
+  @Override
+  public XSummaryItem<S> get(int index) {
+    checkIndex(index);
+    int found = findSummary(summaries, index);
+    if (found >= 0) return summaries.get(found);
+    int sourceIndex = sourceIndexOf(details, index + found + 1);
+    WindowItem item = window.get(sourceIndex);
+    if (item == null) {
+      item = new WindowItem(sourceIndex, getSource().get(sourceIndex));
+      item.attach();
+      window.put(sourceIndex, item);
+    }
+    return item;
+  }
+
+  @Override
+  public int size() {
+    return count + summaries.size();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size())
+      throw new IndexOutOfBoundsException(index + ">=" + size());
+  }
+
+  /**
+   * returns true only if the obj is this instance exactly, to make sure table view items
+   * property fire changed event
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return obj == this;
+  }
+
+  /**
+   * Determine whether is a summary row at the index
+   * 
+   * @param index
+   *          the index
+   * @return true or false
+   */
+  public boolean isSummary(int index) {
+    return getSourceIndex(index) < 0;
+  }
+
+  /**
+   * Notify that values of the source item at the source index changed, the row will be
+   * filtered, sorted and summarized again. only required if the source list can not fire
+   * update change
+   * 
+   * @param sourceIndex
+   *          the source index
+   */
+  public void rowChanged(int sourceIndex) {
+    beginChange();
+    try {
+      updateRow(sourceIndex);
+    } finally {
+      endChange();
+    }
+  }
+
+  private InvalidationListener comberListener = v -> regenerate(getSource());
+  private InvalidationListener totalListener = v -> totalProduceChanged();
+  private ObjectProperty<XSummaryComber<S>> comber =
+      new ObjectPropertyBase<XSummaryComber<S>>() {
+        private WeakReference<XSummaryComber<S>> oldComberRef;
+
+        @Override
+        public Object getBean() {
+          return XSummaryWindowList.this;
+        }
+
+        @Override
+        public String getName() {
+          return "comber";
+        }
+
+        @Override
+        protected void invalidated() {
+          XSummaryComber<S> oldComber = oldComberRef == null ? null : oldComberRef.get();
+          XSummaryComber<S> newComber = get();
+          if (oldComber == newComber) return;
+          if (oldComber != null) {
+            oldComber.predicateProperty().removeListener(comberListener);
+            oldComber.getOrders().removeListener(comberListener);
+            oldComber.getSummers().removeListener(comberListener);
+            oldComber.totalProduceProperty().removeListener(totalListener);
+          }
+          regenerate(getSource());
+          if (newComber != null) {
+            newComber.predicateProperty().addListener(comberListener);
+            newComber.getOrders().addListener(comberListener);
+            newComber.getSummers().addListener(comberListener);
+            newComber.totalProduceProperty().addListener(totalListener);
+          }
+          oldComberRef = new WeakReference<>(newComber);
+        }
+      };
+
+  public final ObjectProperty<XSummaryComber<S>> comberProperty() {
+    return comber;
+  }
+
+  /**
+   * Get summary comber
+   * 
+   * @return the summary comber
+   */
+  public final XSummaryComber<S> getComber() {
+    return comber.get();
+  }
+
+  /**
+   * Set summary comber
+   * 
+   * @param comber
+   *          the summary comber
+   */
+  public final void setComber(XSummaryComber<S> comber) {
+    this.comber.set(comber);
+  }
+
+  private IntegerProperty windowSize = new SimpleIntegerProperty(this, "windowSize", 256) {
+    @Override
+    protected void invalidated() {
+      trimWindow();
+    }
+  };
+
+  /**
+   * window size property, default is 256
+   * 
+   * @return window size property
+   */
+  public final IntegerProperty windowSizeProperty() {
+    return windowSize;
+  }
+
+  /**
+   * Get maximum count of detail items kept
+   * 
+   * @return maximum count of detail items
+   */
+  public final int getWindowSize() {
+    return windowSize.get();
+  }
+
+  /**
+   * Set maximum count of detail items kept, should be larger than visible rows of the
+   * table, default is 256. the least recently requested items exceed the size were evicted
+   * immediately
+   * 
+   * @param windowSize
+   *          maximum count of detail items
+   */
+  public final void setWindowSize(int windowSize) {
+    this.windowSize.set(windowSize);
+  }
+
+  @Override
+  protected void sourceChanged(Change<? extends S> c) {
+    if (isBulkChange(c)) {
+      regenerate(previousSource(c));
+      return;
+    }
+    beginChange();
+    try {
+      while (c.next()) {
+        if (c.wasUpdated()) {
+          for (int i = c.getFrom(); i < c.getTo(); i++)
+            updateRow(i);
+        } else {
+          if (c.wasRemoved()) removeRows(c.getFrom(), c.getRemoved());
+          if (c.wasAdded()) addRows(c.getFrom(), c.getTo());
+        }
+      }
+    } finally {
+      endChange();
+    }
+  }
+
+  // permutation, more than one structural change, or too many rows changed
+  private boolean isBulkChange(Change<? extends S> c) {
+    boolean bulk = false;
+    int structural = 0, rows = 0;
+    while (c.next()) {
+      if (c.wasPermutated()) {
+        bulk = true;
+      } else if (c.wasUpdated()) {
+        rows += c.getTo() - c.getFrom();
+      } else {
+        structural++;
+        rows += c.getRemovedSize() + c.getAddedSize();
+      }
+    }
+    c.reset();
+    return bulk || structural > 1 || rows > BULK_CHANGE;
+  }
+
+  // source list before the change, the added rows replaced by the removed rows
+  private List<S> previousSource(Change<? extends S> c) {
+    List<? extends S> source = getSource();
+    int[] permutation = null;
+    List<Integer> froms = new ArrayList<>(), addedSizes = new ArrayList<>();
+    List<List<? extends S>> removeds = new ArrayList<>();
+    int size = source.size();
+    while (c.next()) {
+      if (c.wasPermutated()) {
+        if (permutation == null) {
+          permutation = new int[source.size()];
+          for (int i = 0; i < permutation.length; i++)
+            permutation[i] = i;
+        }
+        for (int i = c.getFrom(); i < c.getTo(); i++)
+          permutation[i] = c.getPermutation(i);
+      } else if (!c.wasUpdated()) {
+        froms.add(c.getFrom());
+        addedSizes.add(c.getAddedSize());
+        removeds.add(c.getRemoved());
+        size += c.getRemovedSize() - c.getAddedSize();
+      }
+    }
+    c.reset();
+    int[] permuted = permutation;
+    int previousSize = size;
+    return new AbstractList<S>() {
+      @Override
+      public S get(int index) {
+        if (permuted != null) return source.get(permuted[index]);
+        // previous index minus current index before the change
+        int offset = 0;
+        for (int i = 0; i < froms.size(); i++) {
+          int from = froms.get(i) + offset;
+          if (index < from) break;
+          List<? extends S> removed = removeds.get(i);
+          if (index < from + removed.size()) return removed.get(index - from);
+          offset += removed.size() - addedSizes.get(i);
+        }
+        return source.get(index - offset);
+      }
+
+      @Override
+      public int size() {
+        return previousSize;
+      }
+    };
+  }
+
+  private Map<Integer, WindowItem> newWindow() {
+    return new LinkedHashMap<Integer, WindowItem>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, WindowItem> eldest) {
+        if (size() <= Math.max(getWindowSize(), 1)) return false;
+        eldest.getValue().detach();
+        return true;
+      }
+    };
+  }
+
+  // evict the least recently requested items exceed the window size
+  private void trimWindow() {
+    Iterator<WindowItem> iterator = window.values().iterator();
+    while (window.size() > Math.max(getWindowSize(), 1)) {
+      iterator.next().detach();
+      iterator.remove();
+    }
+  }
+
+  // shift source index of the window items not before from
+  private void reindexWindow(int from, int delta) {
+    if (window.isEmpty()) return;
+    Map<Integer, WindowItem> shifted = newWindow();
+    for (WindowItem item : window.values()) {
+      if (item.sourceIndex >= from) item.sourceIndex += delta;
+      shifted.put(item.sourceIndex, item);
+    }
+    window = shifted;
+  }
+
+  /**
+   * generate all rows again and fire one replace change, the removed detail items were
+   * created only when requested, with source items of the previous source
+   */
+  private void regenerate(List<? extends S> previous) {
+    int[] oldDetails = details;
+    int oldSize = size();
+    List<WindowSummary> oldSummaries = summaries;
+    Map<Integer, WindowItem> oldWindow = window;
+    for (WindowItem item : oldWindow.values())
+      item.detach();
+    for (WindowSummary summary : oldSummaries)
+      summary.dropped = true;
+    window = newWindow();
+    generate();
+    if (oldSize == 0 && size() == 0) return;
+    fireChange(new ReplaceChange(new AbstractList<XSummaryItem<S>>() {
+      @Override
+      public XSummaryItem<S> get(int index) {
+        int found = findSummary(oldSummaries, index);
+        if (found >= 0) return oldSummaries.get(found);
+        int sourceIndex = sourceIndexOf(oldDetails, index + found + 1);
+        WindowItem item = oldWindow.get(sourceIndex);
+        return item != null ? item : new WindowItem(sourceIndex, previous.get(sourceIndex));
+      }
+
+      @Override
+      public int size() {
+        return oldSize;
+      }
+    }));
+  }
+
+  private void generate() {
+    XSummaryComber<S> comber = getComber();
+    List<? extends S> source = getSource();
+    predicate = comber == null ? null : comber.getPredicate();
+    orders = Collections.emptyList();
+    summers = Collections.emptyList();
+    if (comber != null) {
+      orders = new ArrayList<>(comber.getOrders());
+      summers = new ArrayList<>(comber.getSummers());
+    }
+    totalProduce = comber != null && comber.isTotalProduce() && !summers.isEmpty();
+    groupLengths = new int[orders.size()];
+    int groupCount = 0;
+    for (int k = 0; k < orders.size(); k++) {
+      if (orders.get(k).isSubtotalGroup()) groupLengths[groupCount++] = k + 1;
+    }
+    groupLengths = Arrays.copyOf(groupLengths, groupCount);
+    rowKeys = new Object[orders.size()];
+    summaries = new ArrayList<>();
+    // source index of filtered rows, null if not filtered
+    int[] filtered = null;
+    count = source.size();
+    if (predicate != null) {
+      filtered = new int[count];
+      int size = count;
+      count = 0;
+      for (int i = 0; i < size; i++) {
+        if (predicate.test(source.get(i))) filtered[count++] = i;
+      }
+      filtered = Arrays.copyOf(filtered, count);
+    }
+    details = filtered;
+    if (orders.isEmpty()) {
+      if (!summers.isEmpty()) summarize(null, null);
+      return;
+    }
+    // sort keys read column by column, indexed by position in filtered rows
+    Object[][] keys = new Object[orders.size()][];
+    for (int k = 0; k < orders.size(); k++) {
+      keys[k] = new Object[count];
+      for (int p = 0; p < count; p++) {
+        S row = source.get(sourceIndexOf(filtered, p));
+        ObservableValue<?> ov = orders.get(k).getObservableValue(row);
+        keys[k][p] = ov == null ? null : ov.getValue();
+      }
+    }
+    int[] sorted = new int[count];
+    for (int p = 0; p < count; p++)
+      sorted[p] = p;
+    sort(sorted, new int[count], 0, count, keys);
+    details = new int[count];
+    for (int i = 0; i < count; i++)
+      details[i] = sourceIndexOf(filtered, sorted[i]);
+    if (!summers.isEmpty()) summarize(keys, sorted);
+  }
+
+  // create subtotals and total in one pass over the sorted detail rows
+  private void summarize(Object[][] keys, int[] sorted) {
+    List<? extends S> source = getSource();
+    List<WindowSummary> opened =
+        new ArrayList<>(Collections.nCopies(groupLengths.length, null));
+    WindowSummary total = totalProduce && count > 0 ? new WindowSummary(-1, null, 0) : null;
+    Object[] values = new Object[summers.size()];
+    for (int i = 0; i < count; i++) {
+      int changed = 0;
+      if (keys != null && i > 0) changed = findChangedOrder(keys, sorted[i - 1], sorted[i]);
+      for (int g = opened.size() - 1; g >= 0; g--) {
+        if (opened.get(g) == null || groupLengths[g] <= changed) continue;
+        closeSummary(opened.set(g, null), i);
+      }
+      S row = source.get(sourceIndexOf(details, i));
+      XSummaryUtils.readSummerValues(summers, row, values);
+      for (int g = 0; g < opened.size(); g++) {
+        if (opened.get(g) == null) {
+          Object[] groupValues = new Object[groupLengths[g]];
+          for (int k = 0; k < groupValues.length; k++)
+            groupValues[k] = keys[k][sorted[i]];
+          opened.set(g, new WindowSummary(g, groupValues, i));
+        }
+        opened.get(g).accumulate(values, true);
+      }
+      if (total != null) total.accumulate(values, true);
+    }
+    for (int g = opened.size() - 1; g >= 0; g--) {
+      if (opened.get(g) != null) closeSummary(opened.get(g), count);
+    }
+    if (total != null) closeSummary(total, count);
+  }
+
+  private void closeSummary(WindowSummary summary, int end) {
+    summary.end = end;
+    summary.refresh();
+    summaries.add(summary);
+  }
+
+  // first order which value differ between the rows, orders.size() if none
+  private int findChangedOrder(Object[][] keys, int p1, int p2) {
+    for (int k = 0; k < orders.size(); k++) {
+      int result = XSummaryUtils.compareValue(orders.get(k), keys[k][p1], keys[k][p2]);
+      if (result != 0) return k;
+    }
+    return orders.size();
+  }
+
+  private int compareRows(Object[][] keys, int p1, int p2) {
+    for (int k = 0; k < orders.size(); k++) {
+      int result = XSummaryUtils.compareValue(orders.get(k), keys[k][p1], keys[k][p2]);
+      if (result != 0) return result;
+    }
+    return 0;
+  }
+
+  // stable merge sort of positions by sort keys, without boxing the positions
+  private void sort(int[] positions, int[] buffer, int from, int to, Object[][] keys) {
+    if (to - from < 8) {
+      for (int i = from + 1; i < to; i++) {
+        int p = positions[i], j = i;
+        for (; j > from && compareRows(keys, positions[j - 1], p) > 0; j--)
+          positions[j] = positions[j - 1];
+        positions[j] = p;
+      }
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    sort(positions, buffer, from, middle, keys);
+    sort(positions, buffer, middle, to, keys);
+    if (compareRows(keys, positions[middle - 1], positions[middle]) <= 0) return;
+    System.arraycopy(positions, from, buffer, from, to - from);
+    int i = from, j = middle;
+    for (int k = from; k < to; k++) {
+      if (j >= to || i < middle && compareRows(keys, buffer[i], buffer[j]) <= 0)
+        positions[k] = buffer[i++];
+      else
+        positions[k] = buffer[j++];
+    }
+  }
+
+  private static int sourceIndexOf(int[] details, int position) {
+    return details == null ? position : details[position];
+  }
+
+  private boolean test(S sourceItem) {
+    return predicate == null || predicate.test(sourceItem);
+  }
+
+  private Object[] readKeys(S sourceItem) {
+    return XSummaryUtils.readKeys(orders, sourceItem, new Object[orders.size()]);
+  }
+
+  private Object[] readValues(S sourceItem) {
+    return XSummaryUtils.readSummerValues(summers, sourceItem, new Object[summers.size()]);
+  }
+
+  // compare the keys and source index with the detail row at the position
+  private int compareRow(Object[] keys, int sourceIndex, int position) {
+    int rowIndex = details[position];
+    if (!orders.isEmpty()) {
+      S row = getSource().get(rowIndex);
+      XSummaryUtils.readKeys(orders, row, rowKeys);
+      int result = XSummaryUtils.compareKeys(orders, keys, rowKeys, orders.size());
+      if (result != 0) return result;
+    }
+    return Integer.compare(sourceIndex, rowIndex);
+  }
+
+  // first position of the detail rows not before the keys and source index
+  private int insertPosition(int sourceIndex, Object[] keys) {
+    if (details == null) return sourceIndex;
+    int low = 0, high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compareRow(keys, sourceIndex, middle) > 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  // position of the detail row of the source index by kept source indexes, or -1
+  private int scanDetail(int sourceIndex) {
+    if (details == null) return sourceIndex < count ? sourceIndex : -1;
+    if (orders.isEmpty())
+      return Math.max(Arrays.binarySearch(details, 0, count, sourceIndex), -1);
+    for (int p = 0; p < count; p++) {
+      if (details[p] == sourceIndex) return p;
+    }
+    return -1;
+  }
+
+  // index in the summaries of the summary at the index, or (-count before the index - 1)
+  private int findSummary(List<WindowSummary> summaries, int index) {
+    int low = 0, high = summaries.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int row = summaries.get(middle).end + middle;
+      if (row == index) return middle;
+      if (row < index)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return -low - 1;
+  }
+
+  // index in the summaries of the first summary ends not before the end
+  private int firstSummary(int end) {
+    int low = 0, high = summaries.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (summaries.get(middle).end < end)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  // count of summaries before the detail row at the position
+  private int countSummaries(int position) {
+    return firstSummary(position + 1);
+  }
+
+  /**
+   * remove source rows from the from index, values of the removed rows removed from their
+   * summaries
+   */
+  private void removeRows(int from, List<? extends S> removed) {
+    int to = from + removed.size();
+    int[] positions = new int[removed.size()];
+    int found = 0;
+    if (details == null) {
+      for (int i = from; i < to; i++)
+        positions[found++] = i;
+    } else {
+      for (int p = 0; p < count; p++) {
+        if (details[p] >= to)
+          details[p] -= removed.size();
+        else if (details[p] >= from) positions[found++] = p;
+      }
+    }
+    // remove the last first, so positions of others not changed
+    for (int i = found - 1; i >= 0; i--) {
+      int sourceIndex = sourceIndexOf(details, positions[i]);
+      S sourceItem = removed.get(sourceIndex - from);
+      WindowItem item = window.remove(sourceIndex);
+      Object[] values = item != null ? item.values : readValues(sourceItem);
+      if (item != null)
+        item.detach();
+      else
+        item = new WindowItem(sourceIndex, sourceItem);
+      removeDetail(positions[i], values, null, item);
+    }
+    reindexWindow(to, -removed.size());
+  }
+
+  // add source rows between from and to
+  private void addRows(int from, int to) {
+    for (int p = 0; details != null && p < count; p++) {
+      if (details[p] >= from) details[p] += to - from;
+    }
+    reindexWindow(from, to - from);
+    for (int i = from; i < to; i++) {
+      S sourceItem = getSource().get(i);
+      if (!test(sourceItem)) continue;
+      insertDetail(i, readKeys(sourceItem), readValues(sourceItem), null);
+    }
+  }
+
+  /**
+   * filter, sort and summarize the source row again. the window item kept the summer values
+   * accumulated, otherwise the old values unknown and the summaries of the row computed
+   * again
+   */
+  private void updateRow(int sourceIndex) {
+    S sourceItem = getSource().get(sourceIndex);
+    WindowItem item = window.get(sourceIndex);
+    Object[] oldValues = item == null ? null : item.values;
+    int position = scanDetail(sourceIndex);
+    boolean matched = test(sourceItem);
+    if (position < 0 && !matched) return;
+    Object[] keys = readKeys(sourceItem);
+    Object[] values = readValues(sourceItem);
+    List<WindowSummary> dirty = new ArrayList<>();
+    if (position >= 0 && matched && isInPlace(position, sourceIndex, keys)) {
+      for (int j = firstSummary(position + 1); j < summaries.size(); j++) {
+        WindowSummary summary = summaries.get(j);
+        if (summary.start > position) continue;
+        if (oldValues == null) {
+          dirty.add(summary);
+        } else {
+          summary.accumulate(oldValues, false);
+          summary.accumulate(values, true);
+          summary.refresh();
+        }
+      }
+    } else {
+      if (position >= 0) {
+        removeDetail(position, oldValues, dirty,
+            item != null ? item : new WindowItem(sourceIndex, sourceItem));
+      }
+      if (matched) {
+        insertDetail(sourceIndex, keys, values, dirty);
+      } else if (item != null) {
+        window.remove(sourceIndex);
+        item.detach();
+      }
+    }
+    if (item != null && item.values != null) item.values = values;
+    recompute(dirty);
+  }
+
+  // whether the row with the keys keeps its position and groups
+  private boolean isInPlace(int position, int sourceIndex, Object[] keys) {
+    if (details != null && !orders.isEmpty()) {
+      if (position > 0 && compareRow(keys, sourceIndex, position - 1) < 0) return false;
+      if (position < count - 1 && compareRow(keys, sourceIndex, position + 1) > 0)
+        return false;
+    }
+    for (int j = firstSummary(position + 1); j < summaries.size(); j++) {
+      WindowSummary summary = summaries.get(j);
+      if (summary.start <= position && !summary.contains(keys)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * insert detail row of the source index, values accumulated to the summaries contain the
+   * row except the dirty ones, and the new subtotals or total added
+   */
+  private void insertDetail(int sourceIndex, Object[] keys, Object[] values,
+      List<WindowSummary> dirty) {
+    int position = insertPosition(sourceIndex, keys);
+    if (details != null) {
+      if (count == details.length) details = Arrays.copyOf(details, count * 3 / 2 + 16);
+      System.arraycopy(details, position, details, position + 1, count - position);
+      details[position] = sourceIndex;
+    }
+    count++;
+    boolean[] contained = new boolean[groupLengths.length + 1];
+    for (int j = firstSummary(position); j < summaries.size(); j++) {
+      WindowSummary summary = summaries.get(j);
+      if (summary.start > position
+          || summary.start == position && !summary.contains(keys)) {
+        summary.start++;
+        summary.end++;
+      } else if (summary.end > position || summary.contains(keys)) {
+        summary.end++;
+        contained[summary.level + 1] = true;
+        if (dirty != null && dirty.contains(summary)) continue;
+        summary.accumulate(values, true);
+        summary.refresh();
+      }
+    }
+    int row = position + countSummaries(position);
+    nextAdd(row, row + 1);
+    if (summers.isEmpty()) return;
+    for (int g = groupLengths.length - 1; g >= 0; g--) {
+      if (contained[g + 1]) continue;
+      Object[] groupValues = Arrays.copyOf(keys, groupLengths[g]);
+      addSummary(new WindowSummary(g, groupValues, position), values);
+    }
+    if (totalProduce && !contained[0]) addSummary(new WindowSummary(-1, null, 0), values);
+  }
+
+  // add the summary of one detail row after the summaries end at the same position
+  private void addSummary(WindowSummary summary, Object[] values) {
+    summary.end = summary.start + 1;
+    summary.accumulate(values, true);
+    summary.refresh();
+    int j = firstSummary(summary.end);
+    while (j < summaries.size() && summaries.get(j).end == summary.end
+        && summaries.get(j).level > summary.level)
+      j++;
+    summaries.add(j, summary);
+    nextAdd(summary.end + j, summary.end + j + 1);
+  }
+
+  /**
+   * remove detail row at the position, values removed from the summaries contain the row,
+   * or the summaries added to dirty if values unknown, and the empty summaries removed
+   */
+  private void removeDetail(int position, Object[] values, List<WindowSummary> dirty,
+      XSummaryItem<S> item) {
+    int row = position + countSummaries(position);
+    if (details != null)
+      System.arraycopy(details, position + 1, details, position, count - position - 1);
+    count--;
+    nextRemove(row, item);
+    int first = firstSummary(position + 1);
+    for (int j = first; j < summaries.size(); j++) {
+      WindowSummary summary = summaries.get(j);
+      if (summary.start > position) {
+        summary.start--;
+        summary.end--;
+        continue;
+      }
+      summary.end--;
+      if (values == null) {
+        if (!dirty.contains(summary)) dirty.add(summary);
+      } else {
+        summary.accumulate(values, false);
+        summary.refresh();
+      }
+    }
+    // remove the last first, so the index of others not changed
+    for (int j = summaries.size() - 1; j >= first; j--) {
+      WindowSummary summary = summaries.get(j);
+      if (summary.start < summary.end) continue;
+      nextRemove(summary.end + j, summary);
+      summaries.remove(j).dropped = true;
+    }
+  }
+
+  /**
+   * compute the summaries again, the inner first, from the subtotals of the next inner
+   * group if any, otherwise from the detail rows
+   */
+  private void recompute(List<WindowSummary> dirty) {
+    dirty.sort((s1, s2) -> Integer.compare(s2.level, s1.level));
+    for (WindowSummary summary : dirty) {
+      if (summary.dropped) continue;
+      summary.reset();
+      int inner = summary.level + 1;
+      if (inner < groupLengths.length) {
+        for (int j = firstSummary(summary.start + 1); j < summaries.size(); j++) {
+          WindowSummary child = summaries.get(j);
+          if (child.end > summary.end) break;
+          if (child.level == inner) summary.merge(child);
+        }
+      } else {
+        Object[] values = new Object[summers.size()];
+        for (int p = summary.start; p < summary.end; p++) {
+          S row = getSource().get(sourceIndexOf(details, p));
+          summary.accumulate(XSummaryUtils.readSummerValues(summers, row, values), true);
+        }
+      }
+      summary.refresh();
+    }
+  }
+
+  private void totalProduceChanged() {
+    XSummaryComber<S> comber = getComber();
+    boolean produce = comber != null && comber.isTotalProduce() && !summers.isEmpty();
+    if (produce == totalProduce) return;
+    totalProduce = produce;
+    int last = summaries.size() - 1;
+    beginChange();
+    try {
+      if (produce && count > 0) {
+        WindowSummary total = new WindowSummary(-1, null, 0);
+        total.end = count;
+        summaries.add(total);
+        recompute(new ArrayList<>(Collections.singletonList(total)));
+        nextAdd(size() - 1, size());
+      } else if (!produce && last >= 0 && summaries.get(last).level < 0) {
+        nextRemove(size() - 1, summaries.get(last));
+        summaries.remove(last).dropped = true;
+      }
+    } finally {
+      endChange();
+    }
+  }
+
+  private void valueChanged(WindowItem item) {
+    if (item.values == null) return;
+    beginChange();
+    try {
+      updateRow(item.sourceIndex);
+    } finally {
+      endChange();
+    }
+  }
+
+  /**
+   * detail item created when requested, listens to the order and summer values while kept
+   * in the window
+   */
+  private class WindowItem implements XSummaryItem<S> {
+    private int sourceIndex;
+    private final S sourceItem;
+    // summer values accumulated to the summaries while attached
+    private Object[] values;
+    private final List<ObservableValue<?>> listened = new ArrayList<>();
+    private final ChangeListener<Object> listener = (v, o, n) -> valueChanged(this);
+    private final WeakChangeListener<Object> weakListener =
+        new WeakChangeListener<>(listener);
+
+    public WindowItem(int sourceIndex, S sourceItem) {
+      this.sourceIndex = sourceIndex;
+      this.sourceItem = sourceItem;
+    }
+
+    public void attach() {
+      values = readValues(sourceItem);
+      for (XSummaryOrder<S, ?> order : orders)
+        listen(order.getObservableValue(sourceItem));
+      for (XSummaryAggregator<S, ?> summer : summers)
+        listen(summer.getObservableValue(sourceItem));
+    }
+
+    private void listen(ObservableValue<?> value) {
+      if (value == null) return;
+      value.addListener(weakListener);
+      listened.add(value);
+    }
+
+    public void detach() {
+      for (ObservableValue<?> value : listened)
+        value.removeListener(weakListener);
+      listened.clear();
+      values = null;
+    }
+
+    @Override
+    public int getSourceIndex() {
+      return sourceIndex;
+    }
+
+    @Override
+    public S getSourceItem() {
+      return sourceItem;
+    }
+
+    @Override
+    public boolean isSummary() {
+      return false;
+    }
+
+    @Override
+    public boolean isSubtotal() {
+      return false;
+    }
+
+    @Override
+    public <T> ObservableValue<T> getSummaryValue(XSummaryOrder<S, T> order) {
+      return orders.contains(order) ? order.getObservableValue(sourceItem) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> ObservableValue<T> getSummaryValue(XSummaryAggregator<S, T> summer) {
+      // value of detail item is summary value type only for summer
+      if (!(summer instanceof XSummarySummer) || !summers.contains(summer)) return null;
+      return ((XSummarySummer<S, T>) summer).getObservableValue(sourceItem);
+    }
+  }
+
+  /**
+   * subtotal (with group values) or total item of the detail rows between start and end
+   * positions, the summary values refreshed when accumulated
+   */
+  private class WindowSummary implements XSummaryItem<S> {
+    private final List<XSummaryOrder<S, ?>> orders = XSummaryWindowList.this.orders;
+    private final List<XSummaryAggregator<S, ?>> summers = XSummaryWindowList.this.summers;
+    // index of the group in group lengths, -1 for total
+    private final int level;
+    private final Object[] groupValues;
+    private final List<ObservableValue<?>> orderValues = new ArrayList<>();
+    private final List<ObjectProperty<Object>> summerValues = new ArrayList<>();
+    private XSummaryAccumulator<?, ?>[] accumulators;
+    private int start;
+    private int end;
+    // removed from the list
+    private boolean dropped;
+
+    public WindowSummary(int level, Object[] groupValues, int start) {
+      this.level = level;
+      this.groupValues = groupValues;
+      this.start = start;
+      this.end = start;
+      if (groupValues != null) {
+        for (Object value : groupValues)
+          orderValues.add(new SimpleObjectProperty<>(value));
+      }
+      for (int k = 0; k < summers.size(); k++)
+        summerValues.add(new SimpleObjectProperty<>());
+      reset();
+    }
+
+    public void reset() {
+      accumulators = new XSummaryAccumulator<?, ?>[summers.size()];
+      for (int k = 0; k < summers.size(); k++)
+        accumulators[k] = summers.get(k).createAccumulator();
+    }
+
+    public boolean contains(Object[] keys) {
+      return groupValues == null
+          || XSummaryUtils.compareKeys(orders, groupValues, keys, groupValues.length) == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void accumulate(Object[] values, boolean add) {
+      for (int k = 0; k < accumulators.length; k++) {
+        if (values[k] == XSummaryUtils.NO_VALUE) continue;
+        XSummaryAccumulator<Object, Object> accumulator =
+            (XSummaryAccumulator<Object, Object>) accumulators[k];
+        if (add)
+          accumulator.add(values[k]);
+        else
+          accumulator.remove(values[k]);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void merge(WindowSummary other) {
+      for (int k = 0; k < accumulators.length; k++) {
+        ((XSummaryAccumulator<Object, Object>) accumulators[k])
+            .merge((XSummaryAccumulator<Object, Object>) other.accumulators[k]);
+      }
+    }
+
+    public void refresh() {
+      for (int k = 0; k < accumulators.length; k++)
+        summerValues.get(k).set(accumulators[k].getValue());
+    }
+
+    @Override
+    public int getSourceIndex() {
+      return -1;
+    }
+
+    @Override
+    public S getSourceItem() {
+      return null;
+    }
+
+    @Override
+    public boolean isSummary() {
+      return true;
+    }
+
+    @Override
+    public boolean isSubtotal() {
+      return groupValues != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> ObservableValue<T> getSummaryValue(XSummaryOrder<S, T> order) {
+      int k = orders.indexOf(order);
+      if (k < 0 || k >= orderValues.size()) return null;
+      return (ObservableValue<T>) orderValues.get(k);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> ObservableValue<T> getSummaryValue(XSummaryAggregator<S, T> summer) {
+      int k = summers.indexOf(summer);
+      return k < 0 ? null : (ObservableValue<T>) summerValues.get(k);
+    }
+  }
+
+  // replace of all rows in one change
+  private class ReplaceChange extends Change<XSummaryItem<S>> {
+    private final List<XSummaryItem<S>> removed;
+    private final int addedSize = size();
+    private boolean onChange;
+
+    public ReplaceChange(List<XSummaryItem<S>> removed) {
+      super(XSummaryWindowList.this);
+      this.removed = removed;
+    }
+
+    @Override
+    public boolean next() {
+      if (onChange) return false;
+      onChange = true;
+      return true;
+    }
+
+    @Override
+    public void reset() {
+      onChange = false;
+    }
+
+    @Override
+    public int getFrom() {
+      return 0;
+    }
+
+    @Override
+    public int getTo() {
+      return addedSize;
+    }
+
+    @Override
+    public List<XSummaryItem<S>> getRemoved() {
+      return removed;
+    }
+
+    @Override
+    protected int[] getPermutation() {
+      return new int[0];
+    }
+  }
+}